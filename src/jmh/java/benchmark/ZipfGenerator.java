@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Generator of integers in {@code [0, cardinality)} that follow a Zipf
+ * distribution, where the probability of {@code i} is proportional to
+ * {@code 1 / (i + 1)^skew}. A skew of 0 gives the uniform distribution. The
+ * values are drawn in advance and then repeated, so that the benchmarks do not
+ * measure the generator.
+ */
+public final class ZipfGenerator {
+
+    private static final int SEQUENCE_LENGTH = 1 << 16;
+
+    private final int[] sequence = new int[SEQUENCE_LENGTH];
+    private int position;
+
+    /**
+     * Construct.
+     *
+     * @param cardinality The number of distinct values.
+     * @param skew        The exponent of the distribution, non-negative.
+     * @param seed        The seed of the random generator.
+     */
+    public ZipfGenerator(int cardinality, double skew, long seed) {
+        Validate.isTrue(cardinality > 0, "cardinality must be positive");
+        Validate.isTrue(skew >= 0, "skew must be non-negative");
+        double[] cumulative = new double[cardinality];
+        double total = 0;
+        for (int i = 0; i < cardinality; i++) {
+            total += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = total;
+        }
+        Random random = new Random(seed);
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            sequence[i] = Math.min(index < 0 ? -index - 1 : index, cardinality - 1);
+        }
+    }
+
+    public int next() {
+        final int value = sequence[position];
+        position = (position + 1) & (SEQUENCE_LENGTH - 1);
+        return value;
+    }
+}
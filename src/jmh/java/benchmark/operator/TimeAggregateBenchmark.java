@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.operator;
+
+import benchmark.ZipfGenerator;
+import component.operator.in1.aggregate.BaseTimeWindowAdd;
+import component.operator.in1.aggregate.BaseTimeWindowAddRemove;
+import component.operator.in1.aggregate.TimeAggregate;
+import component.operator.in1.aggregate.TimeMWAggregate;
+import component.operator.in1.aggregate.TimeSWAggregate;
+import component.operator.in1.aggregate.TimeWindowAdd;
+import component.operator.in1.aggregate.TimeWindowAddRemove;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the keyed time-based aggregates, which compute the sum of
+ * {@link ValueTuple#value} per key and window. The tuples have consecutive
+ * timestamps, so the window size and slide are also in tuples, and their keys
+ * follow a Zipf distribution with the given cardinality and skew.
+ * <ul>
+ * <li>{@code TIME_SW}: {@link TimeSWAggregate}, one window per key that slides
+ * by adding and removing tuples.</li>
+ * <li>{@code TIME_MW}: {@link TimeMWAggregate}, one window per key and window
+ * start, to which every tuple is added.</li>
+ * </ul>
+ * Run with {@code -prof gc} to also get the allocation rate.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TimeAggregateBenchmark {
+
+    @Param({"TIME_SW", "TIME_MW"})
+    public String operator;
+
+    @Param({"1000", "10000"})
+    public long windowSize;
+
+    @Param({"100"})
+    public long windowSlide;
+
+    @Param({"10", "10000"})
+    public int keys;
+
+    @Param({"0.0", "1.0"})
+    public double skew;
+
+    private TimeAggregate<ValueTuple, ValueTuple> aggregate;
+    private ZipfGenerator keyGenerator;
+    private String[] keyNames;
+    private long timestamp;
+
+    @Setup
+    public void setup() {
+        switch (operator) {
+            case "TIME_SW":
+                aggregate = new TimeSWAggregate<>("aggregate", 0, 1, windowSize, windowSlide, new SumWindow());
+                break;
+            case "TIME_MW":
+                aggregate = new TimeMWAggregate<>("aggregate", 0, 1, windowSize, windowSlide, new MultiSumWindow());
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown operator: %s", operator));
+        }
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "k" + i;
+        }
+        keyGenerator = new ZipfGenerator(keys, skew, 0);
+    }
+
+    @Benchmark
+    public List<ValueTuple> processTuple() {
+        return aggregate.processTupleIn1(new ValueTuple(timestamp++, keyNames[keyGenerator.next()], 1));
+    }
+
+    private static class SumWindow extends BaseTimeWindowAddRemove<ValueTuple, ValueTuple> {
+
+        private int sum;
+
+        @Override
+        public void add(ValueTuple t) {
+            sum += t.value;
+        }
+
+        @Override
+        public void remove(ValueTuple t) {
+            sum -= t.value;
+        }
+
+        @Override
+        public ValueTuple getAggregatedResult() {
+            return new ValueTuple(startTimestamp, key, sum);
+        }
+
+        @Override
+        public TimeWindowAddRemove<ValueTuple, ValueTuple> factory() {
+            return new SumWindow();
+        }
+    }
+
+    private static class MultiSumWindow extends BaseTimeWindowAdd<ValueTuple, ValueTuple> {
+
+        private int sum;
+
+        @Override
+        public void add(ValueTuple t) {
+            sum += t.value;
+        }
+
+        @Override
+        public ValueTuple getAggregatedResult() {
+            return new ValueTuple(startTimestamp, key, sum);
+        }
+
+        @Override
+        public TimeWindowAdd<ValueTuple, ValueTuple> factory() {
+            return new MultiSumWindow();
+        }
+    }
+}
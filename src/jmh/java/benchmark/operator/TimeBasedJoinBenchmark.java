@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.operator;
+
+import benchmark.ZipfGenerator;
+import component.operator.in2.join.TimeBasedJoin;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of {@link TimeBasedJoin}, fed alternately from both inputs with
+ * tuples of consecutive timestamps, so that the window size is also the number
+ * of tuples of each input in the window. Two tuples join when their
+ * {@link ValueTuple#value}s are equal, and the values are uniform in a range
+ * such that the given fraction of the compared pairs join. Run with
+ * {@code -prof gc} to also get the allocation rate.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TimeBasedJoinBenchmark {
+
+    @Param({"100", "1000"})
+    public long windowSize;
+
+    @Param({"0.001", "0.1"})
+    public double selectivity;
+
+    private TimeBasedJoin<ValueTuple, ValueTuple, ValueTuple> join;
+    private ZipfGenerator values;
+    private long timestamp;
+
+    @Setup
+    public void setup() {
+        join = new TimeBasedJoin<>("join", windowSize,
+                (t1, t2) -> t1.value == t2.value ? new ValueTuple(t2.getTimestamp(), t2.getKey(), t1.value) : null);
+        values = new ZipfGenerator((int) Math.max(1, Math.round(1 / selectivity)), 0, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void processTuples(Blackhole blackhole) {
+        blackhole.consume(join.processTupleIn1(new ValueTuple(timestamp, "k", values.next())));
+        blackhole.consume(join.processTupleIn2(new ValueTuple(timestamp, "k", values.next())));
+        timestamp++;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.operator;
+
+import component.operator.in1.aggregate.BaseTupleWindow;
+import component.operator.in1.aggregate.TupleAggregate;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link TupleAggregate}, which computes the sum of
+ * {@link ValueTuple#value} over count-based windows. The aggregate is not
+ * keyed, so only the window size and slide, in tuples, are varied. Run with
+ * {@code -prof gc} to also get the allocation rate.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TupleAggregateBenchmark {
+
+    @Param({"1000", "10000"})
+    public long windowSize;
+
+    @Param({"1", "100"})
+    public long windowSlide;
+
+    private TupleAggregate<ValueTuple, ValueTuple> aggregate;
+    private long timestamp;
+
+    @Setup
+    public void setup() {
+        aggregate = new TupleAggregate<>("aggregate", 0, 1, windowSize, windowSlide, new SumWindow());
+    }
+
+    @Benchmark
+    public List<ValueTuple> processTuple() {
+        return aggregate.processTupleIn1(new ValueTuple(timestamp++, "k", 1));
+    }
+
+    private static class SumWindow extends BaseTupleWindow<ValueTuple, ValueTuple> {
+
+        private final ArrayDeque<ValueTuple> tuples = new ArrayDeque<>();
+        private int sum;
+
+        @Override
+        public void add(ValueTuple t) {
+            tuples.addLast(t);
+            sum += t.value;
+        }
+
+        @Override
+        public void slideBy(long count) {
+            for (long i = 0; i < count; i++) {
+                sum -= tuples.pollFirst().value;
+            }
+        }
+
+        @Override
+        public ValueTuple getAggregatedResult() {
+            return new ValueTuple(tuples.peekFirst().getTimestamp(), "k", sum);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameters of {@link QueryBenchmark}, given as {@code name=value} arguments.
+ * The shapes, stream factories and schedulers are comma-separated lists, and
+ * every combination of them is benchmarked.
+ */
+final class BenchmarkConfig {
+
+    enum Mode {
+        /** Run once at {@link #rate}. */
+        FIXED,
+        /** Find the maximum sustainable rate, starting from {@link #rate}. */
+        SEARCH
+    }
+
+    final List<QueryShape> shapes;
+    final List<String> factories;
+    final List<String> schedulers;
+    final Mode mode;
+    final double rate;
+    final double maxRate;
+    final int searchSteps;
+    final long warmupSeconds;
+    final long durationSeconds;
+    final double maxLatencyMillis;
+    final int keys;
+    final double skew;
+    final int width;
+    final int stages;
+    final long windowSize;
+    final long windowSlide;
+    final long joinWindow;
+    final double selectivity;
+    final String output;
+
+    private BenchmarkConfig(Map<String, String> args) {
+        Map<String, String> values = new HashMap<>(args);
+        List<QueryShape> shapes = new ArrayList<>();
+        for (String shape : list(values.remove("shape"), "CHAIN")) {
+            shapes.add(QueryShape.valueOf(shape));
+        }
+        this.shapes = shapes;
+        this.factories = list(values.remove("factory"), "BACKOFF");
+        this.schedulers = list(values.remove("scheduler"), "BASIC");
+        this.mode = Mode.valueOf(remove(values, "mode", "FIXED"));
+        this.rate = Double.parseDouble(remove(values, "rate", "10000"));
+        this.maxRate = Double.parseDouble(remove(values, "maxRate", "10000000"));
+        this.searchSteps = Integer.parseInt(remove(values, "searchSteps", "4"));
+        this.warmupSeconds = Long.parseLong(remove(values, "warmup", "5"));
+        this.durationSeconds = Long.parseLong(remove(values, "duration", "10"));
+        this.maxLatencyMillis = Double.parseDouble(remove(values, "maxLatency", "1000"));
+        this.keys = Integer.parseInt(remove(values, "keys", "1000"));
+        this.skew = Double.parseDouble(remove(values, "skew", "0"));
+        this.width = Integer.parseInt(remove(values, "width", "4"));
+        this.stages = Integer.parseInt(remove(values, "stages", "3"));
+        this.windowSize = Long.parseLong(remove(values, "windowSize", "1000"));
+        this.windowSlide = Long.parseLong(remove(values, "windowSlide", "100"));
+        this.joinWindow = Long.parseLong(remove(values, "joinWindow", "100"));
+        this.selectivity = Double.parseDouble(remove(values, "selectivity", "0.01"));
+        this.output = values.remove("output");
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Unknown parameters: %s", values.keySet()));
+        }
+        if (rate <= 0 || maxRate < rate) {
+            throw new IllegalArgumentException("rate must be positive and at most maxRate");
+        }
+        if (selectivity <= 0 || selectivity > 1) {
+            throw new IllegalArgumentException("selectivity must be in (0, 1]");
+        }
+    }
+
+    static BenchmarkConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(String.format("Expected name=value but got: %s", arg));
+            }
+            values.put(parts[0], parts[1]);
+        }
+        return new BenchmarkConfig(values);
+    }
+
+    /**
+     * @return The number of distinct values of the tuples, so that two random
+     *         tuples have equal values with probability {@link #selectivity}.
+     */
+    int values() {
+        return (int) Math.max(1, Math.round(1 / selectivity));
+    }
+
+    private static String remove(Map<String, String> values, String name, String defaultValue) {
+        String value = values.remove(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static List<String> list(String value, String defaultValue) {
+        return Arrays.asList((value != null ? value : defaultValue).split(","));
+    }
+}
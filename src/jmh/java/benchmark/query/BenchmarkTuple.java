@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.query;
+
+import common.tuple.BaseRichTuple;
+
+/**
+ * Tuple of the query benchmarks. Besides the stimulus of {@link BaseRichTuple},
+ * it carries the time it was scheduled to be created, in nanoseconds, from
+ * which the sinks measure the latency.
+ */
+final class BenchmarkTuple extends BaseRichTuple {
+
+    final long created;
+    final int value;
+
+    BenchmarkTuple(long created, long timestamp, String key, int value) {
+        super(timestamp, key);
+        this.created = created;
+        this.value = value;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.query;
+
+import component.sink.SinkFunction;
+import java.util.Arrays;
+
+/**
+ * Sink function that counts the tuples and, while recording, keeps the latency
+ * of the most recent ones in a fixed-size buffer. Recording can be started and
+ * stopped once.
+ */
+final class LatencySink implements SinkFunction<BenchmarkTuple> {
+
+    private static final int SAMPLES = 1 << 20;
+
+    private final long[] samples = new long[SAMPLES];
+    private volatile boolean recording;
+    private volatile long received;
+    private long recorded;
+
+    @Override
+    public void accept(BenchmarkTuple tuple) {
+        // Only the thread of the sink writes the counters
+        received++;
+        if (recording) {
+            samples[(int) (recorded++ & (SAMPLES - 1))] = System.nanoTime() - tuple.created;
+        }
+    }
+
+    void startRecording() {
+        recording = true;
+    }
+
+    void stopRecording() {
+        recording = false;
+    }
+
+    long received() {
+        return received;
+    }
+
+    /**
+     * @return The latencies recorded, in nanoseconds. Must be called after the
+     *         query is stopped.
+     */
+    long[] latencies() {
+        return Arrays.copyOf(samples, (int) Math.min(recorded, SAMPLES));
+    }
+}
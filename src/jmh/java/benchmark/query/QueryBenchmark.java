@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.query;
+
+import common.util.Util;
+import common.util.backoff.InactiveBackoff;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import query.Query;
+import scheduling.LiebreScheduler;
+import scheduling.basic.BasicLiebreScheduler;
+import stream.BackoffStreamFactory;
+import stream.BlockingStreamFactory;
+import stream.StreamFactory;
+
+/**
+ * End-to-end benchmark of whole queries. For every combination of query shape,
+ * stream factory and scheduler, it runs the query with rate-limited sources and
+ * measures the input and output rates and the latency percentiles of the tuples
+ * that reach the sinks. A run is sustainable if the sources keep up with the
+ * requested rate and the 99th percentile of the latency is within the limit. In
+ * {@code SEARCH} mode, the rate is doubled until a run is not sustainable and
+ * then bisected to find the maximum sustainable rate.
+ * <p>
+ * Every run and search prints one JSON object per line, to the standard output
+ * or appended to the {@code output} file. Example:
+ * {@code java -cp target/benchmarks.jar benchmark.query.QueryBenchmark shape=CHAIN,JOIN factory=BACKOFF,BLOCKING mode=SEARCH output=results.jsonl}
+ *
+ * @see BenchmarkConfig
+ */
+public class QueryBenchmark {
+
+    private static final double SUSTAINABLE_INPUT_RATIO = 0.99;
+
+    public static void main(String[] args) throws IOException {
+        BenchmarkConfig config = BenchmarkConfig.parse(args);
+        PrintWriter out = config.output != null ? new PrintWriter(new FileWriter(config.output, true), true)
+                : new PrintWriter(System.out, true);
+        try {
+            for (QueryShape shape : config.shapes) {
+                for (String factory : config.factories) {
+                    for (String scheduler : config.schedulers) {
+                        if (config.mode == BenchmarkConfig.Mode.SEARCH) {
+                            search(config, shape, factory, scheduler, out);
+                        } else {
+                            out.println(run(config, shape, factory, scheduler, config.rate).toJson());
+                        }
+                    }
+                }
+            }
+        } finally {
+            out.flush();
+            if (config.output != null) {
+                out.close();
+            }
+        }
+    }
+
+    private static void search(BenchmarkConfig config, QueryShape shape, String factory, String scheduler,
+            PrintWriter out) {
+        double sustainable = 0;
+        double unsustainable = Double.NaN;
+        for (double rate = config.rate; rate <= config.maxRate; rate *= 2) {
+            RunResult result = run(config, shape, factory, scheduler, rate);
+            out.println(result.toJson());
+            if (!result.sustainable()) {
+                unsustainable = rate;
+                break;
+            }
+            sustainable = rate;
+        }
+        for (int i = 0; i < config.searchSteps && !Double.isNaN(unsustainable); i++) {
+            double rate = (sustainable + unsustainable) / 2;
+            RunResult result = run(config, shape, factory, scheduler, rate);
+            out.println(result.toJson());
+            if (result.sustainable()) {
+                sustainable = rate;
+            } else {
+                unsustainable = rate;
+            }
+        }
+        out.println(String.format(Locale.ROOT,
+                "{\"type\":\"search\",\"shape\":\"%s\",\"factory\":\"%s\",\"scheduler\":\"%s\",\"maxSustainableRate\":%.1f}",
+                shape, factory, scheduler, sustainable));
+    }
+
+    private static RunResult run(BenchmarkConfig config, QueryShape shape, String factory, String scheduler,
+            double rate) {
+        Query query = new Query(newScheduler(scheduler), newStreamFactory(factory));
+        if ("BLOCKING".equals(factory)) {
+            query.setBackoff(InactiveBackoff.INSTANCE);
+        }
+        Workload workload = new Workload(config);
+        shape.build(query, workload, rate);
+        query.activate();
+        Util.sleep(TimeUnit.SECONDS.toMillis(config.warmupSeconds));
+        workload.startRecording();
+        final long start = System.nanoTime();
+        final long emittedBefore = workload.emitted();
+        final long receivedBefore = workload.received();
+        Util.sleep(TimeUnit.SECONDS.toMillis(config.durationSeconds));
+        final long emitted = workload.emitted() - emittedBefore;
+        final long received = workload.received() - receivedBefore;
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        workload.stopRecording();
+        query.deActivate();
+        return new RunResult(config, shape, factory, scheduler, rate, emitted / seconds, received / seconds,
+                workload.latencies());
+    }
+
+    private static LiebreScheduler<?> newScheduler(String scheduler) {
+        switch (scheduler) {
+            case "BASIC":
+                return new BasicLiebreScheduler();
+            default:
+                throw new IllegalArgumentException(String.format("Unknown scheduler: %s", scheduler));
+        }
+    }
+
+    private static StreamFactory newStreamFactory(String factory) {
+        switch (factory) {
+            case "BACKOFF":
+                return new BackoffStreamFactory();
+            case "BLOCKING":
+                return new BlockingStreamFactory();
+            default:
+                throw new IllegalArgumentException(String.format("Unknown stream factory: %s", factory));
+        }
+    }
+
+    private static final class RunResult {
+
+        private final BenchmarkConfig config;
+        private final QueryShape shape;
+        private final String factory;
+        private final String scheduler;
+        private final double rate;
+        private final double inputRate;
+        private final double outputRate;
+        private final long[] latencies;
+
+        private RunResult(BenchmarkConfig config, QueryShape shape, String factory, String scheduler, double rate,
+                double inputRate, double outputRate, long[] latencies) {
+            this.config = config;
+            this.shape = shape;
+            this.factory = factory;
+            this.scheduler = scheduler;
+            this.rate = rate;
+            this.inputRate = inputRate;
+            this.outputRate = outputRate;
+            this.latencies = latencies;
+        }
+
+        boolean sustainable() {
+            return inputRate >= SUSTAINABLE_INPUT_RATIO * rate && latencies.length > 0
+                    && percentile(0.99) <= TimeUnit.MILLISECONDS.toNanos((long) config.maxLatencyMillis);
+        }
+
+        /**
+         * @return The latency at the given percentile, in nanoseconds, or -1 if no
+         *         latency was recorded.
+         */
+        long percentile(double percentile) {
+            if (latencies.length == 0) {
+                return -1;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(index, 0)];
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"type\":\"run\",\"shape\":\"%s\",\"factory\":\"%s\","
+                    + "\"scheduler\":\"%s\",\"keys\":%d,\"skew\":%s,\"width\":%d,\"rate\":%.1f,"
+                    + "\"inputRate\":%.1f,\"outputRate\":%.1f,\"samples\":%d,\"p50Micros\":%d,\"p90Micros\":%d,"
+                    + "\"p99Micros\":%d,\"p999Micros\":%d,\"maxMicros\":%d,\"sustainable\":%b}", shape, factory,
+                    scheduler, config.keys, config.skew, config.width, rate, inputRate, outputRate,
+                    latencies.length, micros(percentile(0.5)), micros(percentile(0.9)), micros(percentile(0.99)),
+                    micros(percentile(0.999)), micros(percentile(1)), sustainable());
+        }
+
+        private static long micros(long nanos) {
+            return nanos < 0 ? nanos : TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
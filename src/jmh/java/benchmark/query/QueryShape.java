@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.query;
+
+import component.operator.Operator;
+import component.operator.in1.aggregate.BaseTimeWindowAddRemove;
+import component.operator.in1.aggregate.TimeWindowAddRemove;
+import component.operator.in2.Operator2In;
+import component.operator.union.UnionOperator;
+import component.sink.Sink;
+import component.source.Source;
+import java.util.ArrayList;
+import java.util.List;
+import query.Query;
+
+/**
+ * The query shapes of the end-to-end benchmarks. Each shape generates tuples
+ * at the given total rate, split evenly among its sources.
+ */
+enum QueryShape {
+    /** A source, a chain of map operators and a sink. */
+    CHAIN {
+        @Override
+        void build(Query query, Workload workload, double rate) {
+            Source<BenchmarkTuple> source = workload.addSource(query, "source", rate);
+            Sink<BenchmarkTuple> sink = workload.addSink(query, "sink");
+            Operator<BenchmarkTuple, BenchmarkTuple> previous = null;
+            for (int i = 0; i < workload.config.stages; i++) {
+                Operator<BenchmarkTuple, BenchmarkTuple> map = query.addMapOperator("map" + i,
+                        t -> new BenchmarkTuple(t.created, t.getTimestamp(), t.getKey(), t.value + 1));
+                if (previous == null) {
+                    query.connect(source, map);
+                } else {
+                    query.connect(previous, map);
+                }
+                previous = map;
+            }
+            if (previous == null) {
+                query.connect(source, sink);
+            } else {
+                query.connect(previous, sink);
+            }
+        }
+    },
+    /** A source, a sliding window aggregate that sums the values per key and a sink. */
+    AGGREGATE {
+        @Override
+        void build(Query query, Workload workload, double rate) {
+            Source<BenchmarkTuple> source = workload.addSource(query, "source", rate);
+            Operator<BenchmarkTuple, BenchmarkTuple> aggregate = query.addTimeAggregateOperator("aggregate",
+                    workload.config.windowSize, workload.config.windowSlide, new SumWindow());
+            Sink<BenchmarkTuple> sink = workload.addSink(query, "sink");
+            query.connect(source, aggregate).connect(aggregate, sink);
+        }
+    },
+    /** Two sources, a time-based join on equal values and a sink. */
+    JOIN {
+        @Override
+        void build(Query query, Workload workload, double rate) {
+            Source<BenchmarkTuple> left = workload.addSource(query, "left", rate / 2);
+            Source<BenchmarkTuple> right = workload.addSource(query, "right", rate / 2);
+            Operator2In<BenchmarkTuple, BenchmarkTuple, BenchmarkTuple> join = query.addJoinOperator("join",
+                    (t1, t2) -> t1.value == t2.value
+                            ? new BenchmarkTuple(Math.max(t1.created, t2.created),
+                                    Math.max(t1.getTimestamp(), t2.getTimestamp()), t1.getKey(), t1.value)
+                            : null,
+                    workload.config.joinWindow);
+            Sink<BenchmarkTuple> sink = workload.addSink(query, "sink");
+            query.connect2inLeft(left, join).connect2inRight(right, join).connect(join, sink);
+        }
+    },
+    /** A source broadcasting to parallel map operators, each with its own sink. */
+    FAN_OUT {
+        @Override
+        void build(Query query, Workload workload, double rate) {
+            Source<BenchmarkTuple> source = workload.addSource(query, "source", rate);
+            List<Operator<BenchmarkTuple, BenchmarkTuple>> maps = new ArrayList<>();
+            for (int i = 0; i < workload.config.width; i++) {
+                Operator<BenchmarkTuple, BenchmarkTuple> map = query.addMapOperator("map" + i,
+                        t -> new BenchmarkTuple(t.created, t.getTimestamp(), t.getKey(), t.value + 1));
+                maps.add(map);
+                query.connect(map, workload.addSink(query, "sink" + i));
+            }
+            query.connectBroadcast(source, maps);
+        }
+    },
+    /** Parallel sources merged by a union into one sink. */
+    FAN_IN {
+        @Override
+        void build(Query query, Workload workload, double rate) {
+            UnionOperator<BenchmarkTuple> union = query.addUnionOperator("union");
+            for (int i = 0; i < workload.config.width; i++) {
+                query.connect(workload.addSource(query, "source" + i, rate / workload.config.width), union);
+            }
+            query.connect(union, workload.addSink(query, "sink"));
+        }
+    };
+
+    /**
+     * Add the components of the shape to the query.
+     *
+     * @param query    The query.
+     * @param workload Creates the sources and sinks.
+     * @param rate     The total rate of the sources, in tuples per second.
+     */
+    abstract void build(Query query, Workload workload, double rate);
+
+    /**
+     * Sums the values of a key. The result carries the creation time of the latest
+     * tuple of the window, so its latency also includes the time until the window
+     * closes.
+     */
+    private static class SumWindow extends BaseTimeWindowAddRemove<BenchmarkTuple, BenchmarkTuple> {
+
+        private long created;
+        private int sum;
+
+        @Override
+        public void add(BenchmarkTuple t) {
+            created = Math.max(created, t.created);
+            sum += t.value;
+        }
+
+        @Override
+        public void remove(BenchmarkTuple t) {
+            sum -= t.value;
+        }
+
+        @Override
+        public BenchmarkTuple getAggregatedResult() {
+            return new BenchmarkTuple(created, startTimestamp, key, sum);
+        }
+
+        @Override
+        public TimeWindowAddRemove<BenchmarkTuple, BenchmarkTuple> factory() {
+            return new SumWindow();
+        }
+    }
+}
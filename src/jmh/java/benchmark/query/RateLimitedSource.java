@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.query;
+
+import benchmark.ZipfGenerator;
+import component.source.SourceFunction;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Source function that generates {@link BenchmarkTuple}s at a fixed rate, with
+ * keys that follow a Zipf distribution and uniform values in
+ * {@code [0, values)}.
+ * <p>
+ * Every tuple is stamped with the time it was scheduled to be created instead
+ * of the time it was actually created, so that the latency of the tuples that
+ * are delayed because the query cannot keep up is not hidden.
+ */
+final class RateLimitedSource implements SourceFunction<BenchmarkTuple> {
+
+    // Wait instead of returning null if the next tuple is due later than this
+    private static final long MAX_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final double periodNanos;
+    private final String[] keys;
+    private final ZipfGenerator keyGenerator;
+    private final Random values;
+    private final int valueRange;
+    private long start = -1;
+    private volatile long emitted;
+
+    /**
+     * Construct.
+     *
+     * @param rate   The tuples per second.
+     * @param keys   The number of distinct keys.
+     * @param skew   The skew of the key distribution, 0 for uniform.
+     * @param values The number of distinct values.
+     * @param seed   The seed of the random generators.
+     */
+    RateLimitedSource(double rate, int keys, double skew, int values, long seed) {
+        Validate.isTrue(rate > 0, "rate must be positive");
+        Validate.isTrue(values > 0, "values must be positive");
+        this.periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        this.keys = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            this.keys[i] = "k" + i;
+        }
+        this.keyGenerator = new ZipfGenerator(keys, skew, seed);
+        this.values = new Random(seed);
+        this.valueRange = values;
+    }
+
+    @Override
+    public BenchmarkTuple get() {
+        final long now = System.nanoTime();
+        if (start < 0) {
+            start = now;
+        }
+        final long due = start + (long) (emitted * periodNanos);
+        if (due > now) {
+            if (due - now > MAX_SPIN_NANOS) {
+                LockSupport.parkNanos(due - now - MAX_SPIN_NANOS);
+            }
+            return null;
+        }
+        // Only this thread writes the counter
+        emitted++;
+        return new BenchmarkTuple(due, TimeUnit.NANOSECONDS.toMillis(due - start), keys[keyGenerator.next()],
+                values.nextInt(valueRange));
+    }
+
+    /**
+     * @return The number of tuples generated so far.
+     */
+    long emitted() {
+        return emitted;
+    }
+}
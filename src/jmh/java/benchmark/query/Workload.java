@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.query;
+
+import component.sink.Sink;
+import component.source.Source;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import query.Query;
+
+/**
+ * The generators and sinks of one benchmark run, created by a
+ * {@link QueryShape} with the parameters of the {@link BenchmarkConfig}.
+ */
+final class Workload {
+
+    final BenchmarkConfig config;
+    private final List<RateLimitedSource> generators = new ArrayList<>();
+    private final List<LatencySink> sinks = new ArrayList<>();
+
+    Workload(BenchmarkConfig config) {
+        this.config = config;
+    }
+
+    Source<BenchmarkTuple> addSource(Query query, String id, double rate) {
+        RateLimitedSource generator = new RateLimitedSource(rate, config.keys, config.skew, config.values(),
+                generators.size());
+        generators.add(generator);
+        return query.addBaseSource(id, generator);
+    }
+
+    Sink<BenchmarkTuple> addSink(Query query, String id) {
+        LatencySink sink = new LatencySink();
+        sinks.add(sink);
+        return query.addBaseSink(id, sink);
+    }
+
+    long emitted() {
+        return generators.stream().mapToLong(RateLimitedSource::emitted).sum();
+    }
+
+    long received() {
+        return sinks.stream().mapToLong(LatencySink::received).sum();
+    }
+
+    void startRecording() {
+        sinks.forEach(LatencySink::startRecording);
+    }
+
+    void stopRecording() {
+        sinks.forEach(LatencySink::stopRecording);
+    }
+
+    /**
+     * @return The sorted latencies recorded by all the sinks, in nanoseconds.
+     */
+    long[] latencies() {
+        long[] all = sinks.stream().flatMapToLong(sink -> Arrays.stream(sink.latencies())).toArray();
+        Arrays.sort(all);
+        return all;
+    }
+}
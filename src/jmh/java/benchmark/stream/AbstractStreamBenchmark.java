@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.stream;
+
+import common.tuple.BaseRichTuple;
+import common.util.backoff.Backoff;
+import common.util.backoff.ExponentialBackoff;
+import common.util.backoff.InactiveBackoff;
+import component.sink.BaseSink;
+import component.source.BaseSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import query.Query;
+import stream.MWMRStream;
+import stream.Stream;
+
+/**
+ * Common driver of the stream benchmarks. The producers and consumers of the
+ * stream run in their own threads, started once per trial. Every benchmark
+ * invocation starts a round, in which the producers write a number of tuples,
+ * and returns once the consumers have read all of them.
+ * <ul>
+ * <li>{@link #throughput()} writes {@link #BATCH} tuples per round and reports
+ * tuples written per second.</li>
+ * <li>{@link #latency()} writes a single tuple per producer and reports the
+ * distribution of the time until it is read, including the hand-off to the
+ * producer threads.</li>
+ * </ul>
+ * Producers of {@link MWMRStream}s end every round with the same heartbeat,
+ * later than all the tuples of the round, so that their last tuples become
+ * ready without waiting for the next round.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class AbstractStreamBenchmark {
+
+    static final int BATCH = 100_000;
+    private static final String KEY = "k";
+
+    @Param({"EXPONENTIAL", "INACTIVE"})
+    public String backoff;
+
+    private final AtomicLong round = new AtomicLong();
+    private final LongAdder delivered = new LongAdder();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile int roundTuples;
+    private volatile long roundEnd;
+    private volatile boolean running;
+    private Stream<BaseRichTuple> stream;
+    private long expectedDeliveries;
+
+    /**
+     * @return The number of producers writing to the stream.
+     */
+    protected abstract int producers();
+
+    /**
+     * @return The number of consumers reading from the stream.
+     */
+    protected abstract int consumers();
+
+    /**
+     * @return {@code true} if every tuple is delivered to all the consumers,
+     *         {@code false} if it is delivered to one of them.
+     */
+    protected abstract boolean deliversToAll();
+
+    /**
+     * Create the stream under test.
+     */
+    protected abstract Stream<BaseRichTuple> newStream(List<BaseSource<BaseRichTuple>> sources,
+            List<BaseSink<BaseRichTuple>> sinks, Backoff backoff);
+
+    @Setup
+    public void setup() {
+        List<BaseSource<BaseRichTuple>> sources = new ArrayList<>();
+        for (int i = 0; i < producers(); i++) {
+            sources.add(new BaseSource<>("source" + i, () -> null));
+        }
+        List<BaseSink<BaseRichTuple>> sinks = new ArrayList<>();
+        for (int i = 0; i < consumers(); i++) {
+            sinks.add(new BaseSink<>("sink" + i, tuple -> {
+            }));
+        }
+        stream = newStream(sources, sinks, newBackoff());
+        if (stream instanceof MWMRStream) {
+            MWMRStream<BaseRichTuple> mwmrStream = (MWMRStream<BaseRichTuple>) stream;
+            sources.forEach(mwmrStream::registerProducer);
+            sinks.forEach(mwmrStream::registerConsumer);
+        }
+        stream.enable();
+        running = true;
+        for (int i = 0; i < producers(); i++) {
+            final int producer = i;
+            final int producerIndex = sources.get(i).getIndex();
+            threads.add(new Thread(() -> produce(producer, producerIndex), "producer" + i));
+        }
+        for (BaseSink<BaseRichTuple> sink : sinks) {
+            final int consumerIndex = sink.getIndex();
+            threads.add(new Thread(() -> consume(consumerIndex), sink.getId()));
+        }
+        threads.forEach(Thread::start);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+        }
+        threads.clear();
+        stream.disable();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void throughput() {
+        transfer(BATCH);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() {
+        transfer(producers());
+    }
+
+    private void transfer(int tuples) {
+        expectedDeliveries += deliversToAll() ? (long) tuples * consumers() : tuples;
+        roundTuples = tuples;
+        roundEnd += tuples + 1;
+        round.incrementAndGet();
+        while (delivered.sum() < expectedDeliveries) {
+            Thread.yield();
+        }
+    }
+
+    private void produce(int producer, int producerIndex) {
+        final boolean heartbeats = stream instanceof MWMRStream;
+        long lastRound = 0;
+        long timestamp = 0;
+        while (running) {
+            if (round.get() == lastRound) {
+                Thread.yield();
+                continue;
+            }
+            lastRound++;
+            // The first producer also writes the remainder of the division
+            final int tuples = roundTuples;
+            final long end = roundEnd;
+            final int share = tuples / producers() + (producer == 0 ? tuples % producers() : 0);
+            for (int i = 0; i < share; i++) {
+                stream.addTuple(new BaseRichTuple(System.nanoTime(), ++timestamp, KEY), producerIndex);
+            }
+            if (heartbeats) {
+                ((MWMRStream<BaseRichTuple>) stream).addHeartbeat(new BaseRichTuple(end, KEY), producerIndex);
+            }
+            timestamp = end;
+        }
+    }
+
+    private void consume(int consumerIndex) {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            if (stream.getNextTuple(consumerIndex) != null) {
+                delivered.increment();
+            }
+        }
+    }
+
+    private Backoff newBackoff() {
+        switch (backoff) {
+            case "EXPONENTIAL":
+                // Same as the default backoff of Query
+                return new ExponentialBackoff(1, 10, 3);
+            case "INACTIVE":
+                return InactiveBackoff.INSTANCE;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown backoff: %s", backoff));
+        }
+    }
+
+    static int capacity() {
+        return Query.DEFAULT_STREAM_CAPACITY;
+    }
+}
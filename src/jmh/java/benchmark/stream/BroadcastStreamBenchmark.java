@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.stream;
+
+import common.tuple.BaseRichTuple;
+import common.util.backoff.Backoff;
+import component.sink.BaseSink;
+import component.source.BaseSource;
+import java.util.List;
+import org.openjdk.jmh.annotations.Param;
+import stream.BackoffStreamFactory;
+import stream.Stream;
+import stream.StreamFactory;
+
+/**
+ * Throughput and latency of the broadcast stream, which has a single producer
+ * and delivers every tuple to all the {@link #consumers}.
+ */
+public class BroadcastStreamBenchmark extends AbstractStreamBenchmark {
+
+    private static final StreamFactory FACTORY = new BackoffStreamFactory();
+
+    @Param({"1", "4"})
+    public int consumers;
+
+    @Override
+    protected int producers() {
+        return 1;
+    }
+
+    @Override
+    protected int consumers() {
+        return consumers;
+    }
+
+    @Override
+    protected boolean deliversToAll() {
+        return true;
+    }
+
+    @Override
+    protected Stream<BaseRichTuple> newStream(List<BaseSource<BaseRichTuple>> sources,
+            List<BaseSink<BaseRichTuple>> sinks, Backoff backoff) {
+        return FACTORY.newBroadcastStream(sources.get(0), sinks, capacity(), backoff);
+    }
+}
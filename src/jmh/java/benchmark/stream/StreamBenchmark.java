@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package benchmark.stream;
+
+import common.tuple.BaseRichTuple;
+import common.util.backoff.Backoff;
+import common.util.backoff.InactiveBackoff;
+import component.sink.BaseSink;
+import component.source.BaseSource;
+import java.util.List;
+import org.openjdk.jmh.annotations.Param;
+import query.Query;
+import stream.BackoffStreamFactory;
+import stream.BlockingStreamFactory;
+import stream.Stream;
+import stream.StreamFactory;
+
+/**
+ * Throughput and latency of the stream implementations with {@link #producers}
+ * writers and {@link #consumers} readers, i.e., SPSC, MPSC, SPMC and MPMC
+ * patterns. The ScaleGate streams deliver every tuple to all the consumers, in
+ * timestamp order. The queue-based streams are shared by all the threads and
+ * deliver every tuple to one consumer, which measures the contention of the
+ * underlying queue. The blocking stream does not back off, so it ignores
+ * {@link #backoff}.
+ * <p>
+ * Example: {@code java -jar target/benchmarks.jar StreamBenchmark -p type=SG,TIMESTAMP_SG -p producers=1,2,4,8}
+ */
+public class StreamBenchmark extends AbstractStreamBenchmark {
+
+    private static final StreamFactory BACKOFF_FACTORY = new BackoffStreamFactory();
+    private static final StreamFactory BLOCKING_FACTORY = new BlockingStreamFactory();
+
+    @Param({"BACKOFF", "BLOCKING", "SG", "TIMESTAMP_SG"})
+    public String type;
+
+    @Param({"1", "4"})
+    public int producers;
+
+    @Param({"1", "4"})
+    public int consumers;
+
+    @Override
+    protected int producers() {
+        return producers;
+    }
+
+    @Override
+    protected int consumers() {
+        return consumers;
+    }
+
+    @Override
+    protected boolean deliversToAll() {
+        return type.endsWith("SG");
+    }
+
+    @Override
+    protected Stream<BaseRichTuple> newStream(List<BaseSource<BaseRichTuple>> sources,
+            List<BaseSink<BaseRichTuple>> sinks, Backoff backoff) {
+        switch (type) {
+            case "BACKOFF":
+                return BACKOFF_FACTORY.newStream(sources.get(0), sinks.get(0), capacity(), backoff);
+            case "BLOCKING":
+                return BLOCKING_FACTORY.newStream(sources.get(0), sinks.get(0), capacity(),
+                        InactiveBackoff.INSTANCE);
+            case "SG":
+                return BACKOFF_FACTORY.newMWMRStream(sources, sinks, Query.DEFAULT_SGSTREAM_MAX_LEVELS,
+                        capacity(), backoff);
+            case "TIMESTAMP_SG":
+                return BACKOFF_FACTORY.newTimestampMWMRStream(sources, sinks,
+                        Query.DEFAULT_SGSTREAM_MAX_LEVELS, capacity(), backoff);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown stream type: %s", type));
+        }
+    }
+}
@@ -1,45 +1,113 @@
 package common.metrics;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 
+/**
+ * Base class for metrics that are written to a file, one row per second. Values
+ * are only accumulated in memory when recorded, and the rows are written in
+ * batches by the {@link FileMetricsReporter} thread.
+ */
 public abstract class AbstractFileMetric extends AbstractMetric {
 
-    private final PrintWriter out;
+    private final DataOutputStream out;
+    private final FileMetricsFormat format;
+    private final boolean autoFlush;
 
     public AbstractFileMetric(String id, String folder, boolean autoFlush) {
+        this(id, folder, autoFlush, FileMetricsFormat.CSV);
+    }
+
+    public AbstractFileMetric(String id, String folder, boolean autoFlush, FileMetricsFormat format) {
         super(id);
-        final String outputFile = folder + File.separator + id + ".csv";
+        this.format = format;
+        this.autoFlush = autoFlush;
+        final String outputFile = folder + File.separator + id + format.extension();
         try {
-            FileWriter outFile = new FileWriter(outputFile);
-            out = new PrintWriter(outFile, autoFlush);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)));
         } catch (IOException e) {
             throw new IllegalArgumentException(
                     String.format("Failed to open file %s for writing: %s", outputFile, e.getMessage()), e);
         }
     }
 
-    protected final void writeCSVLine(Object... values) {
-        StringBuilder sb = new StringBuilder();
-        for (Object value : values) {
-            sb.append(value).append(",");
+    /**
+     * Write the rows of all the seconds before the given one that have not been
+     * written yet. Called by the reporter thread, and when the metric is disabled.
+     *
+     * @param thisSec The current second.
+     */
+    protected abstract void writePrevious(long thisSec);
+
+    /**
+     * Write one row, either as a comma-separated line or as consecutive 64-bit
+     * values, depending on the format.
+     */
+    protected final void writeValues(long... values) {
+        try {
+            if (format == FileMetricsFormat.BINARY) {
+                for (long value : values) {
+                    out.writeLong(value);
+                }
+                return;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (long value : values) {
+                sb.append(value).append(',');
+            }
+            sb.setCharAt(sb.length() - 1, '\n');
+            out.writeBytes(sb.toString());
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to write metric %s: %s", id, e.getMessage()), e);
         }
-        sb.deleteCharAt(sb.length() - 1);
-        writeLine(sb.toString());
     }
 
-    protected final void writeLine(String line) {
-        out.println(line);
+    final synchronized void report(long thisSec) {
+        if (!isEnabled()) {
+            return;
+        }
+        writePrevious(thisSec);
+        if (autoFlush) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(String.format("Failed to write metric %s: %s", id, e.getMessage()), e);
+            }
+        }
+    }
+
+    @Override
+    public void enable() {
+        super.enable();
+        FileMetricsReporter.INSTANCE.register(this);
     }
 
     @Override
     public void disable() {
-        if (isEnabled()) {
-            out.flush();
+        FileMetricsReporter.INSTANCE.unregister(this);
+        synchronized (this) {
+            if (isEnabled()) {
+                // Close the file even if writing the last rows fails
+                try {
+                    writePrevious(currentTimeSeconds());
+                } finally {
+                    super.disable();
+                    close();
+                }
+                return;
+            }
+            super.disable();
+        }
+    }
+
+    private void close() {
+        try {
             out.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to close metric %s: %s", id, e.getMessage()), e);
         }
-        super.disable();
     }
 }
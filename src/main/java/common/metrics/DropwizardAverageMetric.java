@@ -23,21 +23,42 @@
 
 package common.metrics;
 
-import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.atomic.LongAdder;
 
 /** Statistic that writes the per-second average of the recorded value. */
 public class DropwizardAverageMetric extends AbstractMetric implements Metric {
 
-    private final Histogram histogram;
+    private final AverageGauge gauge;
+
+    private static class AverageGauge implements Gauge<Long> {
+        private final LongAdder sum = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        void add(long value) {
+            sum.add(value);
+            count.increment();
+        }
+
+        @Override
+        public synchronized Long getValue() {
+            // Subtract instead of resetting, to keep values added concurrently
+            long currentCount = count.sum();
+            long currentSum = sum.sum();
+            count.add(-currentCount);
+            sum.add(-currentSum);
+            return currentCount != 0 ? currentSum / currentCount : -1;
+        }
+    }
 
     public DropwizardAverageMetric(String id, MetricRegistry metricRegistry) {
         super(id);
-        histogram = metricRegistry.histogram(id);
+        gauge = (AverageGauge) metricRegistry.gauge(id, AverageGauge::new);
     }
 
     @Override
     protected void doRecord(long v) {
-        histogram.update(v);
+        gauge.add(v);
     }
 }
@@ -25,6 +25,7 @@ package common.metrics;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.atomic.LongAdder;
 
 /** Statistic that records the per-second sum of the recorded value. */
 class DropwizardCountPerSecondMetric extends AbstractMetric implements Metric {
@@ -32,23 +33,21 @@ class DropwizardCountPerSecondMetric extends AbstractMetric implements Metric {
     private final AverageGauge gauge;
 
     private static class AverageGauge implements Gauge<Long> {
+        private final LongAdder sum = new LongAdder();
         private long startTime = System.currentTimeMillis();
-        private long sum = 0;
 
         void add(long value) {
-            synchronized (this) {
-                sum += value;
-            }
+            sum.add(value);
         }
 
         @Override
-        public Long getValue() {
+        public synchronized Long getValue() {
             long newTime = System.currentTimeMillis();
-            long value = (1000 * sum) / (newTime - startTime);
-            synchronized (this) {
-                startTime = newTime;
-                sum = 0;
-            }
+            // Subtract instead of resetting, to keep values added concurrently
+            long currentSum = sum.sum();
+            sum.add(-currentSum);
+            long value = (1000 * currentSum) / Math.max(newTime - startTime, 1);
+            startTime = newTime;
             return value;
         }
     }
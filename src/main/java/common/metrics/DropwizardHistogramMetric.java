@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.WeightedSnapshot;
+import com.codahale.metrics.WeightedSnapshot.WeightedSample;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statistic that keeps the distribution of the recorded value in a
+ * {@link LatencyHistogram}. Like {@link DropwizardCountMetric}, it resets when
+ * it is read, so every report has the percentiles of the values recorded since
+ * the previous one.
+ */
+class DropwizardHistogramMetric extends AbstractMetric implements Metric {
+
+    static class LatencyHistogramReservoir implements Reservoir {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.snapshot().count(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void update(long value) {
+            histogram.record(value);
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            List<WeightedSample> samples = new ArrayList<>();
+            histogram.snapshotAndReset().forEachValue((value, count) -> samples.add(new WeightedSample(value, count)));
+            return new WeightedSnapshot(samples);
+        }
+    }
+
+    private final Histogram histogram;
+
+    public DropwizardHistogramMetric(String id, MetricRegistry metricRegistry) {
+        super(id);
+        histogram = metricRegistry.histogram(id, () -> new Histogram(new LatencyHistogramReservoir()));
+    }
+
+    @Override
+    protected void doRecord(long v) {
+        histogram.update(v);
+    }
+}
@@ -41,4 +41,9 @@ public class DropwizardMetricsFactory implements MetricsFactory {
     public Metric newStreamMetric(String id, Object type) {
         return newTotalCountMetric(id, type);
     }
+
+    @Override
+    public Metric newHistogramMetric(String id, Object type) {
+        return new DropwizardHistogramMetric(metricName.get(id, type), metricRegistry);
+    }
 }
@@ -22,44 +22,50 @@ package common.metrics;
  *   Dimitris Palyvos-Giannas palyvos@chalmers.se
  */
 
-/** Statistic that writes the per-second average of the recorded value. */
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistic that writes the per-second average of the recorded value. Recording
+ * is lock-free, and the averages are written by the {@link FileMetricsReporter}.
+ */
 public class FileAverageMetric extends AbstractFileMetric {
 
-    private long sum;
-    private long count;
+    private final LongAdder sum = new LongAdder();
+    private final LongAdder count = new LongAdder();
     private long prevSec;
 
     public FileAverageMetric(String id, String folder, boolean autoFlush) {
-        super(id, folder, autoFlush);
+        this(id, folder, autoFlush, FileMetricsFormat.CSV);
+    }
+
+    public FileAverageMetric(String id, String folder, boolean autoFlush, FileMetricsFormat format) {
+        super(id, folder, autoFlush, format);
     }
 
     @Override
     protected void doRecord(long v) {
-        writePreviousAverages();
-        sum += v;
-        count++;
+        sum.add(v);
+        count.increment();
     }
 
     @Override
     public void enable() {
-        this.sum = 0;
-        this.count = 0;
+        this.sum.reset();
+        this.count.reset();
         prevSec = currentTimeSeconds();
         super.enable();
     }
 
-    public void disable() {
-        writePreviousAverages();
-        super.disable();
-    }
-
-    private void writePreviousAverages() {
-        long thisSec = currentTimeSeconds();
+    @Override
+    protected void writePrevious(long thisSec) {
         while (prevSec < thisSec) {
-            long average = (count != 0 ? sum / count : -1);
-            writeCSVLine(prevSec, average);
-            sum = 0;
-            count = 0;
+            // Subtract instead of resetting, to keep values recorded concurrently
+            long currentCount = count.sum();
+            long currentSum = sum.sum();
+            count.add(-currentCount);
+            sum.add(-currentSum);
+            long average = (currentCount != 0 ? currentSum / currentCount : -1);
+            writeValues(prevSec, average);
             prevSec++;
         }
     }
@@ -23,38 +23,43 @@ package common.metrics;
  *   Dimitris Palyvos-Giannas palyvos@chalmers.se
  */
 
-/** Statistic that records the per-second sum of the recorded value. */
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistic that records the per-second sum of the recorded value. Recording is
+ * lock-free, and the sums are written by the {@link FileMetricsReporter}.
+ */
 public class FileCountMetric extends AbstractFileMetric {
-    private long count;
+    private final LongAdder count = new LongAdder();
     long prevSec;
 
     public FileCountMetric(String id, String folder, boolean autoFlush) {
-        super(id, folder, autoFlush);
+        this(id, folder, autoFlush, FileMetricsFormat.CSV);
+    }
+
+    public FileCountMetric(String id, String folder, boolean autoFlush, FileMetricsFormat format) {
+        super(id, folder, autoFlush, format);
     }
 
     @Override
     protected void doRecord(long v) {
-        writePreviousCounts();
-        count += v;
+        count.add(v);
     }
 
     @Override
     public void enable() {
-        this.count = 0;
+        this.count.reset();
         this.prevSec = currentTimeSeconds();
         super.enable();
     }
 
-    public void disable() {
-        writePreviousCounts();
-        super.disable();
-    }
-
-    private void writePreviousCounts() {
-        long thisSec = currentTimeSeconds();
+    @Override
+    protected void writePrevious(long thisSec) {
         while (prevSec < thisSec) {
-            writeCSVLine(prevSec, count);
-            count = 0;
+            // Subtract instead of resetting, to keep values recorded concurrently
+            long sum = count.sum();
+            count.add(-sum);
+            writeValues(prevSec, sum);
             prevSec++;
         }
     }
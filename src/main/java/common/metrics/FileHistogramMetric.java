@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.metrics;
+
+import common.metrics.LatencyHistogram.Snapshot;
+
+/**
+ * Statistic that writes the per-second count, percentiles (50, 90, 99, 99.9)
+ * and maximum of the recorded value, or -1 for the seconds without values.
+ * Values are recorded in a {@link LatencyHistogram}, so several threads can
+ * record concurrently, and the rows are written by the
+ * {@link FileMetricsReporter}.
+ */
+public class FileHistogramMetric extends AbstractFileMetric {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long prevSec;
+
+    public FileHistogramMetric(String id, String folder, boolean autoFlush) {
+        this(id, folder, autoFlush, FileMetricsFormat.CSV);
+    }
+
+    public FileHistogramMetric(String id, String folder, boolean autoFlush, FileMetricsFormat format) {
+        super(id, folder, autoFlush, format);
+    }
+
+    @Override
+    protected void doRecord(long v) {
+        histogram.record(v);
+    }
+
+    @Override
+    public void enable() {
+        histogram.snapshotAndReset();
+        prevSec = currentTimeSeconds();
+        super.enable();
+    }
+
+    @Override
+    protected void writePrevious(long thisSec) {
+        while (prevSec < thisSec) {
+            Snapshot snapshot = histogram.snapshotAndReset();
+            if (snapshot.count() > 0) {
+                writeValues(prevSec, snapshot.count(), snapshot.valueAtPercentile(0.5),
+                        snapshot.valueAtPercentile(0.9), snapshot.valueAtPercentile(0.99),
+                        snapshot.valueAtPercentile(0.999), snapshot.max());
+            } else {
+                writeValues(prevSec, 0, -1, -1, -1, -1, -1);
+            }
+            prevSec++;
+        }
+    }
+}
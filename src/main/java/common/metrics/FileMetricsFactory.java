@@ -4,11 +4,17 @@ public class FileMetricsFactory implements MetricsFactory {
     private final MetricName metricName;
     private final String folder;
     private final boolean autoFlush;
+    private final FileMetricsFormat format;
 
-    public FileMetricsFactory(String folder, MetricName metricName, boolean autoFlush) {
+    public FileMetricsFactory(String folder, MetricName metricName, boolean autoFlush, FileMetricsFormat format) {
         this.metricName = metricName;
         this.folder = folder;
         this.autoFlush = autoFlush;
+        this.format = format;
+    }
+
+    public FileMetricsFactory(String folder, MetricName metricName, boolean autoFlush) {
+        this(folder, metricName, autoFlush, FileMetricsFormat.CSV);
     }
 
     public FileMetricsFactory(String folder, MetricName metricName) {
@@ -21,18 +27,17 @@ public class FileMetricsFactory implements MetricsFactory {
 
     @Override
     public Metric newAverageMetric(String id, Object type) {
-        return new FileAverageMetric(metricName.get(id, type), folder, autoFlush);
+        return new FileAverageMetric(metricName.get(id, type), folder, autoFlush, format);
     }
 
     @Override
     public Metric newCountPerSecondMetric(String id, Object type) {
-        return new FileCountMetric(metricName.get(id, type), folder, autoFlush);
+        return new FileCountMetric(metricName.get(id, type), folder, autoFlush, format);
     }
 
     @Override
     public Metric newTotalCountMetric(String id, Object type) {
-        // FIXME: Implement
-        throw new UnsupportedOperationException();
+        return new FileTotalCountMetric(metricName.get(id, type), folder, autoFlush, format);
     }
 
     @Override
@@ -44,4 +49,9 @@ public class FileMetricsFactory implements MetricsFactory {
     public TimeMetric newAverageTimeMetric(String id, Object type) {
         return new DelegatingTimeMetric(newAverageMetric(id, type));
     }
+
+    @Override
+    public Metric newHistogramMetric(String id, Object type) {
+        return new FileHistogramMetric(metricName.get(id, type), folder, autoFlush, format);
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.metrics;
+
+/** Format of the files written by the {@link FileMetricsFactory} metrics. */
+public enum FileMetricsFormat {
+    /** One comma-separated line per second, in a {@code .csv} file. */
+    CSV(".csv"),
+    /**
+     * One row of big-endian 64-bit values per second, with the same columns as
+     * {@link #CSV}, in a {@code .bin} file.
+     */
+    BINARY(".bin");
+
+    private final String extension;
+
+    FileMetricsFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
@@ -2,6 +2,11 @@ package common.metrics;
 
 public class FileMetricsNoTimeMetricsFactory extends FileMetricsFactory {
 
+    public FileMetricsNoTimeMetricsFactory(String folder, MetricName metricName, boolean autoFlush,
+            FileMetricsFormat format) {
+        super(folder, metricName, autoFlush, format);
+    }
+
     public FileMetricsNoTimeMetricsFactory(String folder, MetricName metricName, boolean autoFlush) {
         super(folder, metricName, autoFlush);
     }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.metrics;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Background thread that writes the enabled {@link AbstractFileMetric}s, right
+ * after every second, so that the threads recording values never format or write
+ * rows themselves. The thread is started when the first metric is enabled.
+ */
+final class FileMetricsReporter {
+
+    static final FileMetricsReporter INSTANCE = new FileMetricsReporter();
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final long PERIOD_MILLIS = 1000;
+    // Report slightly after the second changes, so the clock of the metrics agrees
+    private static final long OFFSET_MILLIS = 10;
+
+    private final Set<AbstractFileMetric> metrics = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService executor;
+
+    private FileMetricsReporter() {
+    }
+
+    synchronized void register(AbstractFileMetric metric) {
+        metrics.add(metric);
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "file-metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long initialDelay = PERIOD_MILLIS - System.currentTimeMillis() % PERIOD_MILLIS + OFFSET_MILLIS;
+            executor.scheduleAtFixedRate(this::report, initialDelay, PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void unregister(AbstractFileMetric metric) {
+        metrics.remove(metric);
+    }
+
+    private void report() {
+        final long thisSec = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        for (AbstractFileMetric metric : metrics) {
+            try {
+                metric.report(thisSec);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to report metric {}", metric.id(), e);
+                // Stop reporting it, closing its file like when it is disabled
+                try {
+                    metric.disable();
+                } catch (RuntimeException closeFailure) {
+                    LOG.error("Failed to disable metric {}", metric.id(), closeFailure);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistic that writes, every second, the sum of all the values recorded since
+ * the metric was enabled. Recording is lock-free, and the sums are written by
+ * the {@link FileMetricsReporter}.
+ */
+public class FileTotalCountMetric extends AbstractFileMetric {
+    private final LongAdder total = new LongAdder();
+    private long prevSec;
+
+    public FileTotalCountMetric(String id, String folder, boolean autoFlush) {
+        this(id, folder, autoFlush, FileMetricsFormat.CSV);
+    }
+
+    public FileTotalCountMetric(String id, String folder, boolean autoFlush, FileMetricsFormat format) {
+        super(id, folder, autoFlush, format);
+    }
+
+    @Override
+    protected void doRecord(long v) {
+        total.add(v);
+    }
+
+    @Override
+    public void enable() {
+        this.total.reset();
+        this.prevSec = currentTimeSeconds();
+        super.enable();
+    }
+
+    @Override
+    protected void writePrevious(long thisSec) {
+        while (prevSec < thisSec) {
+            writeValues(prevSec, total.sum());
+            prevSec++;
+        }
+    }
+}
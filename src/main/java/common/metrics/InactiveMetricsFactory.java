@@ -26,4 +26,9 @@ public class InactiveMetricsFactory implements MetricsFactory {
     public Metric newStreamMetric(String id, Object type) {
         return InactiveMetric.INSTANCE;
     }
+
+    @Override
+    public Metric newHistogramMetric(String id, Object type) {
+        return InactiveMetric.INSTANCE;
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with fixed memory, for latency
+ * distributions. Values smaller than {@code 2^SIGNIFICANT_BITS} are counted
+ * exactly, and larger ones in log-linear buckets: every power of two is split
+ * into {@code 2^(SIGNIFICANT_BITS-1)} buckets of equal width, so a value is
+ * reported with a relative error below {@code 2^-(SIGNIFICANT_BITS-1)} (about
+ * 1.6%). Any number of threads can record values concurrently, and
+ * {@link #snapshotAndReset()} starts a new interval without losing the values
+ * recorded meanwhile.
+ */
+public final class LatencyHistogram {
+
+    private static final int SIGNIFICANT_BITS = 7;
+    private static final int LINEAR_BUCKETS = 1 << SIGNIFICANT_BITS;
+    private static final int SUB_BUCKETS = LINEAR_BUCKETS >> 1;
+    // Values up to Long.MAX_VALUE, whose highest bit is 62
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - SIGNIFICANT_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value. Negative values, e.g., caused by clock adjustments, are
+     * recorded as 0.
+     *
+     * @param value The value.
+     */
+    public void record(long value) {
+        final long v = Math.max(value, 0);
+        counts.incrementAndGet(bucket(v));
+        long current;
+        while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+        }
+    }
+
+    /**
+     * @return The values recorded so far.
+     */
+    public Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return new Snapshot(snapshot, max.get());
+    }
+
+    /**
+     * Get the values recorded since the previous reset and reset the histogram.
+     * Each value recorded concurrently is in either this or the next snapshot.
+     *
+     * @return The values recorded since the previous reset.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] snapshot = new long[BUCKETS];
+        final long snapshotMax = max.getAndSet(0);
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(snapshot, snapshotMax);
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        // Keep the SIGNIFICANT_BITS highest bits of the value
+        final int shift = 64 - Long.numberOfLeadingZeros(value) - SIGNIFICANT_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return The smallest value that falls in the bucket.
+     */
+    static long lowestValue(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        final long top = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return top << shift;
+    }
+
+    /**
+     * @return The largest value that falls in the bucket.
+     */
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        final long top = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /** Immutable copy of the counts of a {@link LatencyHistogram}. */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long max;
+
+        private Snapshot(long[] counts, long max) {
+            this.counts = counts;
+            long count = 0;
+            int highestBucket = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    count += counts[i];
+                    highestBucket = i;
+                }
+            }
+            this.count = count;
+            // The maximum is updated after the count, so it can be behind
+            this.max = count > 0 ? Math.max(max, lowestValue(highestBucket)) : 0;
+        }
+
+        /**
+         * @return The number of values.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Get the value below or at which the given fraction of the values are.
+         *
+         * @param percentile The fraction, in {@code [0, 1]}.
+         * @return The value, with the precision of the histogram, or -1 if the
+         *         snapshot is empty.
+         */
+        public long valueAtPercentile(double percentile) {
+            if (percentile < 0 || percentile > 1) {
+                throw new IllegalArgumentException("percentile must be in [0, 1]");
+            }
+            if (count == 0) {
+                return -1;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(percentile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * @return The largest value, or 0 if the snapshot is empty.
+         */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Call the visitor with every distinct value, at the precision of the
+         * histogram, and the number of times it was recorded, in increasing order.
+         */
+        public void forEachValue(ValueVisitor visitor) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    visitor.visit(Math.min(highestValue(i), max), counts[i]);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ValueVisitor {
+        void visit(long value, long count);
+    }
+}
@@ -15,6 +15,10 @@ public final class Metrics {
         Metrics.metricName = metricName;
     }
 
+    public static MetricsFactory file(String folder, boolean autoFlush, FileMetricsFormat format) {
+        return new FileMetricsFactory(folder, metricName, autoFlush, format);
+    }
+
     public static MetricsFactory file(String folder, boolean autoFlush) {
         return new FileMetricsFactory(folder, metricName, autoFlush);
     }
@@ -11,4 +11,10 @@ public interface MetricsFactory {
     TimeMetric newAverageTimeMetric(String id, Object type);
 
     Metric newStreamMetric(String id, Object type);
+
+    /**
+     * Create a metric that keeps the distribution of the recorded values, e.g.,
+     * latencies, and reports its percentiles.
+     */
+    Metric newHistogramMetric(String id, Object type);
 }
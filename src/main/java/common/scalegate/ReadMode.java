@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.scalegate;
+
+/**
+ * How the ready tuples of a {@link ScaleGate} are distributed among its
+ * readers. In all modes, each reader receives its tuples in order.
+ */
+public enum ReadMode {
+    /** Every reader receives every tuple. */
+    BROADCAST,
+    /**
+     * Each tuple is received by one reader, chosen by the partitioner given to
+     * {@link ScaleGate#setReadMode(ReadMode, java.util.function.ToIntFunction)},
+     * so that the same partition always goes to the same reader while the
+     * readers do not change. Adding or draining a reader remaps the partitions
+     * of the tuples added afterwards, see
+     * {@link ScaleGate#setReadMode(ReadMode, java.util.function.ToIntFunction)}.
+     */
+    PARTITIONED,
+    /** Each tuple is received by the first reader that claims it. */
+    SHARED
+}
@@ -23,25 +23,40 @@
  */
 package common.scalegate;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class SGNodeAArrImpl<T extends Comparable<T>> {
 
+    private static final AtomicIntegerFieldUpdater<SGNodeAArrImpl> ASSIGNED = AtomicIntegerFieldUpdater
+            .newUpdater(SGNodeAArrImpl.class, "assigned");
+
     final AtomicReferenceArray<SGNodeAArrImpl> next;
     final T obj;
     final ScaleGateAArrImpl.WriterThreadLocalData ln;
     final int writerID;
-    volatile boolean assigned;
+    // Heartbeats only carry the progress of their writer and are not returned
+    final boolean heartbeat;
+    // Reader of the tuple in PARTITIONED mode, set before the node is inserted
+    ScaleGateAArrImpl.ReaderThreadLocalData partition;
+    // Whether a reader claimed the tuple in SHARED mode
+    volatile int assigned;
 
     public SGNodeAArrImpl(int levels, T t, ScaleGateAArrImpl.WriterThreadLocalData ln, int writerID) {
+        this(levels, t, ln, writerID, false);
+    }
+
+    public SGNodeAArrImpl(int levels, T t, ScaleGateAArrImpl.WriterThreadLocalData ln, int writerID,
+            boolean heartbeat) {
         next = new AtomicReferenceArray<SGNodeAArrImpl>(levels);
         for (int i = 0; i < levels; i++) {
             next.set(i, null);
         }
         this.obj = t;
-        this.assigned = false;
+        this.assigned = 0;
         this.ln = ln;
         this.writerID = writerID;
+        this.heartbeat = heartbeat;
     }
 
     public SGNodeAArrImpl getNext(int level) {
@@ -60,8 +75,12 @@ public class SGNodeAArrImpl<T extends Comparable<T>> {
         return next.compareAndSet(i, oldNode, newNode);
     }
 
+    public boolean tryAssign() {
+        return assigned == 0 && ASSIGNED.compareAndSet(this, 0, 1);
+    }
+
     public boolean isLastAdded() {
-        // read this as volatile
-        return this == ln.written;
+        // read this as volatile; the last node of an idle writer does not block
+        return this == ln.written && !ln.idle;
     }
 }
@@ -24,7 +24,9 @@
 
 package common.scalegate;
 
-public interface ScaleGate<T extends Comparable<? super T>> {
+import java.util.function.ToIntFunction;
+
+public interface ScaleGate<T> {
 
     // Called by each processing thread to get the next ready tuple
     T getNextReadyTuple(int readerID);
@@ -32,6 +34,11 @@ public interface ScaleGate<T extends Comparable<? super T>> {
     // Just add a tuple (used for the output tuples TGate)
     void addTuple(T tuple, int writerID);
 
+    // Declare that the writer will not add tuples older than the watermark,
+    // without adding a tuple. Readers can then return the tuples of the other
+    // writers up to the watermark.
+    void addHeartbeat(T watermark, int writerID);
+
     // Note that this implementation is not synchronized. The behavior is not
     // specified if addTuple method is invoked
     // by any thread after this method has been invoked
@@ -39,4 +46,59 @@ public interface ScaleGate<T extends Comparable<? super T>> {
 
     boolean hasBeenEmptied();
 
+    // Number of tuples that have been added but not yet returned to the
+    // slowest reader
+    int size();
+
+    // Number of tuples that have been added by the given writer but not yet
+    // returned to the slowest reader
+    int size(int writerID);
+
+    // Choose how the tuples are distributed among the readers; BROADCAST by
+    // default. Must be called before any tuple is added. The partitioner is only
+    // used in PARTITIONED mode and its result is taken modulo the number of
+    // readers present when the tuple is added, so adding or draining a reader
+    // changes the reader of a partition for the tuples added afterwards. A
+    // tuple is only returned to the reader of its partition.
+    void setReadMode(ReadMode mode, ToIntFunction<? super T> partitioner);
+
+    // Number of tuples dropped because their writer had been excluded as idle
+    // and they were older than tuples already returned to the readers
+    long getLateTuples();
+
+    // Add a writer while the ScaleGate is in use and return its id. The tuples
+    // that are ready when the writer joins stay ready, and the first tuples of
+    // the writer that are older than them are dropped as late.
+    int addWriter();
+
+    // Remove a writer, whose tuples already added are still returned. The
+    // readers stop waiting for it and its id can be given to a new writer.
+    void removeWriter(int writerID);
+
+    // Add a reader while the ScaleGate is in use and return its id. The reader
+    // starts from the position of the slowest reader.
+    int addReader();
+
+    // Stop giving the tuples added afterwards to a reader, before removing it.
+    // The reader keeps reading the tuples already given to it, which in
+    // PARTITIONED mode no other reader returns, until isDrained(readerID). Like
+    // any reader, it cannot pass the last tuple of a writer until the writer
+    // adds another one or the ScaleGate is flushed. At least one reader that is
+    // not drained must remain.
+    void drainReader(int readerID);
+
+    // Whether a reader that is drained has returned all the tuples given to it
+    boolean isDrained(int readerID);
+
+    // Remove a reader, which must not be reading when it is removed and must not
+    // be used afterwards. In PARTITIONED mode, the reader must be drained first
+    // so that its tuples are not lost. At least one reader must remain.
+    void removeReader(int readerID);
+
+    // Number of writers and readers that can be present at the same time; the
+    // ids are smaller than these
+    int maxWriters();
+
+    int maxReaders();
+
 }
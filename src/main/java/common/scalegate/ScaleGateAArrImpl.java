@@ -24,7 +24,13 @@
 
 package common.scalegate;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToIntFunction;
 
 public class ScaleGateAArrImpl<T extends Comparable<T>> implements ScaleGate<T> {
 
@@ -32,14 +38,84 @@ public class ScaleGateAArrImpl<T extends Comparable<T>> implements ScaleGate<T>
     SGNodeAArrImpl<T> head;
     final SGNodeAArrImpl<T> tail;
 
-    final int numberOfWriters;
-    final int numberOfReaders;
-    // Arrays of source/reader id local data
-    WriterThreadLocalData[] writertld;
-    ReaderThreadLocalData[] readertld;
+    // Number of writer and reader ids
+    final int maxWriters;
+    final int maxReaders;
+    // Arrays of source/reader id local data, null for the ids that are not used.
+    // Replaced when writers or readers are added or removed.
+    volatile WriterThreadLocalData[] writertld;
+    volatile ReaderThreadLocalData[] readertld;
+
+    // Counters are spaced by 128 bytes so that threads do not share cache lines
+    private static final int PADDING = 16;
+    // Tuples added by each writer, at position writerID * PADDING
+    private final AtomicLongArray writtenCounts;
+    // Tuples returned to each reader, one row per reader with the count per
+    // writer followed by the total and by the tuples of its partition
+    private final AtomicLongArray readCounts;
+    private final int readRowLength;
+    // In PARTITIONED mode, tuples given to each reader, one row per writer with
+    // the count per reader
+    private final AtomicLongArray assignedCounts;
+    private final int assignedRowLength;
+
+    // A writer that blocks the readers without adding anything for this long is
+    // considered idle, and the readers stop waiting for it
+    private final long idleTimeoutNanos;
+    // Writers that are idle or that resumed but did not add a tuple in order yet.
+    // While positive, readers check explicitly that no active writer is behind
+    // them before returning a tuple.
+    private final AtomicInteger excludedWriters = new AtomicInteger();
+    // Tuples of resumed writers that were older than tuples already returned
+    private final AtomicLong lateTuples = new AtomicLong();
+
+    private ReadMode readMode = ReadMode.BROADCAST;
+    private ToIntFunction<? super T> partitioner;
+    // Readers that new tuples are partitioned among, the ones present that are
+    // not draining. Replaced with the locks of all the writers held, so that no
+    // tuple is given to a reader once it is draining.
+    private volatile ReaderThreadLocalData[] partitionReaders;
 
     public ScaleGateAArrImpl(int maxlevels, int writers, int readers) {
+        this(maxlevels, writers, readers, Long.MAX_VALUE);
+    }
+
+    /**
+     * Construct a ScaleGate that excludes writers that block the readers for
+     * longer than the given timeout without adding a tuple or a heartbeat. When an
+     * excluded writer adds a tuple again, the tuple is merged if it is not older
+     * than the tuples already returned and dropped (counted in
+     * {@link #getLateTuples()}) otherwise.
+     *
+     * @param idleTimeoutMillis The idle timeout, or {@link Long#MAX_VALUE} to
+     *                          never exclude writers.
+     */
+    public ScaleGateAArrImpl(int maxlevels, int writers, int readers, long idleTimeoutMillis) {
+        this(maxlevels, writers, readers, writers, readers, idleTimeoutMillis);
+    }
+
+    /**
+     * Construct a ScaleGate to which writers and readers can be added and removed
+     * while it is used, up to the given numbers.
+     *
+     * @param writers           The initial writers, with ids {@code [0, writers)}.
+     * @param readers           The initial readers, with ids {@code [0, readers)}.
+     * @param maxWriters        The maximum number of writers at the same time.
+     * @param maxReaders        The maximum number of readers at the same time.
+     * @param idleTimeoutMillis The idle timeout, or {@link Long#MAX_VALUE} to
+     *                          never exclude writers.
+     * @see #ScaleGateAArrImpl(int, int, int, long)
+     */
+    public ScaleGateAArrImpl(int maxlevels, int writers, int readers, int maxWriters, int maxReaders,
+            long idleTimeoutMillis) {
+        if (writers < 0 || writers > maxWriters || readers < 1 || readers > maxReaders) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid number of writers (%d of %d) or readers (%d of %d)", writers, maxWriters, readers,
+                    maxReaders));
+        }
         this.maxlevels = maxlevels;
+        this.idleTimeoutNanos = idleTimeoutMillis == Long.MAX_VALUE ? Long.MAX_VALUE
+                : TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
 
         this.head = new SGNodeAArrImpl(maxlevels, null, null, -1);
         this.tail = new SGNodeAArrImpl(maxlevels, null, null, -1);
@@ -47,18 +123,25 @@ public class ScaleGateAArrImpl<T extends Comparable<T>> implements ScaleGate<T>
         for (int i = 0; i < maxlevels; i++)
             head.setNext(i, tail);
 
-        this.numberOfWriters = writers;
-        this.numberOfReaders = readers;
+        this.maxWriters = maxWriters;
+        this.maxReaders = maxReaders;
 
-        writertld = new WriterThreadLocalData[numberOfWriters];
-        for (int i = 0; i < numberOfWriters; i++) {
+        writertld = new WriterThreadLocalData[maxWriters];
+        for (int i = 0; i < writers; i++) {
             writertld[i] = new WriterThreadLocalData(head, maxlevels);
         }
 
-        readertld = new ReaderThreadLocalData[numberOfReaders];
-        for (int i = 0; i < numberOfReaders; i++) {
-            readertld[i] = new ReaderThreadLocalData(head);
+        readertld = new ReaderThreadLocalData[maxReaders];
+        for (int i = 0; i < readers; i++) {
+            readertld[i] = new ReaderThreadLocalData(head, i);
         }
+        partitionReaders = Arrays.copyOf(readertld, readers);
+
+        writtenCounts = new AtomicLongArray(maxWriters * PADDING);
+        readRowLength = ((maxWriters + 2 + PADDING - 1) / PADDING) * PADDING;
+        readCounts = new AtomicLongArray(maxReaders * readRowLength);
+        assignedRowLength = ((maxReaders + PADDING - 1) / PADDING) * PADDING;
+        assignedCounts = new AtomicLongArray(maxWriters * assignedRowLength);
 
         // This should not be used again, only the writer/reader-local variables
         head = null;
@@ -69,33 +152,464 @@ public class ScaleGateAArrImpl<T extends Comparable<T>> implements ScaleGate<T>
      * (non-Javadoc)
      */
     public T getNextReadyTuple(int readerID) {
-        SGNodeAArrImpl next = getReaderLocal(readerID).localHead.getNext(0);
+        ReaderThreadLocalData reader = getReaderLocal(readerID);
+        while (true) {
+            SGNodeAArrImpl next = reader.localHead.getNext(0);
+            if (next == tail) {
+                return null;
+            }
+            // Until every writer added something, the first tuples of the missing
+            // writers might be older than the ones in the list
+            if (!reader.allStarted) {
+                WriterThreadLocalData missing = notStartedWriter();
+                if (missing != null) {
+                    blockedBy(reader, missing);
+                    return null;
+                }
+                reader.allStarted = true;
+            }
+            if (next.isLastAdded()) {
+                blockedBy(reader, next.ln);
+                return null;
+            }
+            if (excludedWriters.get() > 0 && !tryPassExcluded(reader, next)) {
+                return null;
+            }
+            reader.blockedWriter = null;
+            reader.localHead = next;
+            if (next.heartbeat) {
+                continue;
+            }
+            // Only this reader writes its row; the counts are of passed tuples, so
+            // that the occupancy is the same in all read modes
+            final int row = readerID * readRowLength;
+            readCounts.lazySet(row + next.writerID, readCounts.get(row + next.writerID) + 1);
+            readCounts.lazySet(row + maxWriters, readCounts.get(row + maxWriters) + 1);
+            if (isDeliveredTo(next, reader)) {
+                if (next.partition == reader) {
+                    // Counted once returned, to tell when the reader is drained
+                    readCounts.lazySet(row + maxWriters + 1, readCounts.get(row + maxWriters + 1) + 1);
+                }
+                return (T) next.getTuple();
+            }
+        }
+    }
 
-        if (next != tail && !next.isLastAdded()) {
-            getReaderLocal(readerID).localHead = next;
-            return (T) next.getTuple();
+    private boolean isDeliveredTo(SGNodeAArrImpl node, ReaderThreadLocalData reader) {
+        switch (readMode) {
+        case PARTITIONED:
+            return node.partition == reader;
+        case SHARED:
+            return node.tryAssign();
+        default:
+            return true;
         }
-        return null;
+    }
+
+    @Override
+    public void setReadMode(ReadMode mode, ToIntFunction<? super T> partitioner) {
+        if (mode == ReadMode.PARTITIONED && partitioner == null) {
+            throw new IllegalArgumentException("PARTITIONED mode requires a partitioner");
+        }
+        this.readMode = mode;
+        this.partitioner = partitioner;
+    }
+
+    @Override
+    public synchronized int addWriter() {
+        final int writerID = freeId(writertld);
+        // While the new writer finds its place, no tuple is added and no writer
+        // is found idle, so the readers cannot pass that place
+        lockWriters(writertld, 0, () -> join(writerID));
+        return writerID;
+    }
+
+    private void join(int writerID) {
+        WriterThreadLocalData frontier = null;
+        for (WriterThreadLocalData writer : writertld) {
+            // Only these writers hold back the readers
+            if (writer == null || writer.idle || writer.excluded || writer.written == tail) {
+                continue;
+            }
+            if (writer.written.getTuple() == null) {
+                // The readers wait for this writer to start, so they did not pass
+                // anything and the new writer starts like the initial ones
+                WriterThreadLocalData joining = new WriterThreadLocalData(writer.written, maxlevels);
+                writertld = with(writertld, writerID, joining);
+                return;
+            }
+            if (frontier == null || writer.written.getTuple().compareTo(frontier.written.getTuple()) < 0) {
+                frontier = writer;
+            }
+        }
+        WriterThreadLocalData joining;
+        if (frontier != null) {
+            // The readers cannot pass the last node of the slowest writer, so a
+            // heartbeat of the new writer right after it keeps them there until
+            // the new writer adds a tuple, without holding back anything that was
+            // ready
+            joining = new WriterThreadLocalData(frontier.written, maxlevels);
+            System.arraycopy(frontier.update, 0, joining.update, 0, maxlevels);
+            insert((T) frontier.written.getTuple(), joining, writerID, true);
+            joining.lowerBound = (T) frontier.written.getTuple();
+        } else {
+            // Nothing holds back the readers, so the heartbeat goes to the end.
+            // The position of a reader might not have all the levels, so the
+            // heartbeat has all of them and is the only node in the upper ones.
+            SGNodeAArrImpl node = slowestReader().localHead;
+            final int levels = node.next.length();
+            final SGNodeAArrImpl[] last = new SGNodeAArrImpl[levels];
+            for (int i = levels - 1; i >= 0; i--) {
+                SGNodeAArrImpl next;
+                while ((next = node.getNext(i)) != tail) {
+                    node = next;
+                }
+                last[i] = node;
+            }
+            joining = new WriterThreadLocalData(node, maxlevels);
+            if (node.getTuple() != null) {
+                final T obj = (T) node.getTuple();
+                SGNodeAArrImpl heartbeat = new SGNodeAArrImpl(maxlevels, obj, joining, writerID, true);
+                for (int i = 0; i < maxlevels; i++) {
+                    if (i < levels) {
+                        insertNode(last[i], heartbeat, obj, i);
+                    } else {
+                        heartbeat.setNext(i, tail);
+                    }
+                    joining.update[i] = heartbeat;
+                }
+                joining.written = heartbeat;
+                joining.lowerBound = obj;
+            } else {
+                // Nothing was added yet, the readers wait for the first tuple of
+                // the new writer, which is checked like the one of a resumed writer
+                joining.excluded = true;
+                excludedWriters.incrementAndGet();
+            }
+        }
+        writertld = with(writertld, writerID, joining);
+    }
+
+    @Override
+    public synchronized void removeWriter(int writerID) {
+        WriterThreadLocalData writer = writertld[writerID];
+        if (writer == null) {
+            throw new IllegalArgumentException("No writer with id " + writerID);
+        }
+        synchronized (writer) {
+            // A removed writer never resumes, so it does not need to be excluded
+            writer.idle = true;
+            if (writer.excluded) {
+                writer.excluded = false;
+                excludedWriters.decrementAndGet();
+            }
+        }
+        writertld = with(writertld, writerID, null);
+    }
+
+    @Override
+    public synchronized int addReader() {
+        final int readerID = freeId(readertld);
+        lockWriters(writertld, 0, () -> {
+            SGNodeAArrImpl start = slowestReader().localHead;
+            // Count the tuples after the start, so that the counts of the new
+            // reader match the ones of the readers that passed the same tuples
+            long[] ahead = new long[maxWriters];
+            for (SGNodeAArrImpl node = start.getNext(0); node != tail; node = node.getNext(0)) {
+                if (!node.heartbeat) {
+                    ahead[node.writerID]++;
+                }
+            }
+            final int row = readerID * readRowLength;
+            long total = 0;
+            for (int i = 0; i < maxWriters; i++) {
+                long read = writtenCounts.get(i * PADDING) - ahead[i];
+                readCounts.set(row + i, read);
+                total += read;
+            }
+            readCounts.set(row + maxWriters, total);
+            // The id might have been used by a removed reader
+            readCounts.set(row + maxWriters + 1, 0);
+            for (int i = 0; i < maxWriters; i++) {
+                assignedCounts.set(i * assignedRowLength + readerID, 0);
+            }
+            readertld = with(readertld, readerID, new ReaderThreadLocalData(start, readerID));
+            partitionReaders = partitionReaders(readertld);
+        });
+        return readerID;
+    }
+
+    @Override
+    public synchronized void drainReader(int readerID) {
+        ReaderThreadLocalData reader = getPresentReader(readerID);
+        if (reader.draining) {
+            return;
+        }
+        if (partitionReaders.length == 1) {
+            throw new IllegalStateException("Cannot drain the last reader");
+        }
+        // No tuple is being added, so the tuples given to the reader are fixed
+        // once it leaves the partition, and their counts are published by the
+        // flag
+        lockWriters(writertld, 0, () -> {
+            reader.draining = true;
+            partitionReaders = partitionReaders(readertld);
+        });
+    }
+
+    @Override
+    public boolean isDrained(int readerID) {
+        ReaderThreadLocalData reader = getPresentReader(readerID);
+        if (!reader.draining) {
+            return false;
+        }
+        if (readMode != ReadMode.PARTITIONED) {
+            // The other readers return the tuples that the reader does not
+            return true;
+        }
+        long assigned = 0;
+        for (int i = 0; i < maxWriters; i++) {
+            assigned += assignedCounts.get(i * assignedRowLength + readerID);
+        }
+        return readCounts.get(readerID * readRowLength + maxWriters + 1) == assigned;
+    }
+
+    @Override
+    public synchronized void removeReader(int readerID) {
+        ReaderThreadLocalData reader = getPresentReader(readerID);
+        if (readMode == ReadMode.PARTITIONED && !isDrained(readerID)) {
+            throw new IllegalStateException("Reader " + readerID + " must be drained before it is removed");
+        }
+        if (!reader.draining && partitionReaders.length == 1) {
+            throw new IllegalStateException("Cannot remove the last reader");
+        }
+        readertld = with(readertld, readerID, null);
+        partitionReaders = partitionReaders(readertld);
+    }
+
+    private ReaderThreadLocalData getPresentReader(int readerID) {
+        ReaderThreadLocalData reader = readertld[readerID];
+        if (reader == null) {
+            throw new IllegalArgumentException("No reader with id " + readerID);
+        }
+        return reader;
+    }
+
+    @Override
+    public int maxWriters() {
+        return maxWriters;
+    }
+
+    @Override
+    public int maxReaders() {
+        return maxReaders;
+    }
+
+    /**
+     * Run the action holding the locks of the writers from the given position
+     * on, so that nothing is added to the skip list.
+     */
+    private void lockWriters(WriterThreadLocalData[] writers, int from, Runnable action) {
+        if (from == writers.length) {
+            action.run();
+        } else if (writers[from] == null) {
+            lockWriters(writers, from + 1, action);
+        } else {
+            synchronized (writers[from]) {
+                lockWriters(writers, from + 1, action);
+            }
+        }
+    }
+
+    private ReaderThreadLocalData slowestReader() {
+        ReaderThreadLocalData slowest = null;
+        long slowestRead = Long.MAX_VALUE;
+        for (int i = 0; i < maxReaders; i++) {
+            ReaderThreadLocalData reader = readertld[i];
+            if (reader != null && readCounts.get(i * readRowLength + maxWriters) < slowestRead) {
+                slowest = reader;
+                slowestRead = readCounts.get(i * readRowLength + maxWriters);
+            }
+        }
+        return slowest;
+    }
+
+    private static int freeId(Object[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == null) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("All the " + ids.length + " ids are used");
+    }
+
+    private static <E> E[] with(E[] array, int index, E element) {
+        E[] copy = Arrays.copyOf(array, array.length);
+        copy[index] = element;
+        return copy;
+    }
+
+    private static ReaderThreadLocalData[] partitionReaders(ReaderThreadLocalData[] readers) {
+        return Arrays.stream(readers).filter(reader -> reader != null && !reader.draining)
+                .toArray(ReaderThreadLocalData[]::new);
     }
 
     @Override
     // Add a tuple
     public void addTuple(T tuple, int writerID) {
-        this.internalAddTuple(tuple, writerID);
+        this.internalAddTuple(tuple, writerID, false);
+    }
+
+    @Override
+    public void addHeartbeat(T watermark, int writerID) {
+        this.internalAddTuple(watermark, writerID, true);
+    }
+
+    @Override
+    public long getLateTuples() {
+        return lateTuples.get();
     }
 
     @Override
     public void letItFlush() {
-        for (int i = 0; i < numberOfWriters; i++) {
-            getWriterLocal(i).written = tail;
+        for (WriterThreadLocalData writer : writertld) {
+            if (writer != null) {
+                writer.written = tail;
+            }
         }
     }
 
     @Override
     public boolean hasBeenEmptied() {
-        for (int i = 0; i < numberOfReaders; i++)
-            if (getReaderLocal(i).localHead.getNext(0) != tail)
+        for (ReaderThreadLocalData reader : readertld)
+            if (reader != null && reader.localHead.getNext(0) != tail)
+                return false;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        // Read the reader counters first, so that they never exceed the writer ones
+        long slowestRead = Long.MAX_VALUE;
+        ReaderThreadLocalData[] readers = readertld;
+        for (int i = 0; i < maxReaders; i++) {
+            if (readers[i] != null) {
+                slowestRead = Math.min(slowestRead, readCounts.get(i * readRowLength + maxWriters));
+            }
+        }
+        // Removed writers count until their tuples are read
+        long written = 0;
+        for (int i = 0; i < maxWriters; i++) {
+            written += writtenCounts.get(i * PADDING);
+        }
+        return (int) Math.min(Math.max(written - slowestRead, 0), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int size(int writerID) {
+        long slowestRead = Long.MAX_VALUE;
+        ReaderThreadLocalData[] readers = readertld;
+        for (int i = 0; i < maxReaders; i++) {
+            if (readers[i] != null) {
+                slowestRead = Math.min(slowestRead, readCounts.get(i * readRowLength + writerID));
+            }
+        }
+        long written = writtenCounts.get(writerID * PADDING);
+        return (int) Math.min(Math.max(written - slowestRead, 0), Integer.MAX_VALUE);
+    }
+
+    private WriterThreadLocalData notStartedWriter() {
+        for (WriterThreadLocalData writer : writertld) {
+            if (writer == null) {
+                continue;
+            }
+            SGNodeAArrImpl written = writer.written;
+            if (written != tail && written.getTuple() == null && !writer.idle) {
+                return writer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check, when some writers are excluded, that no active writer has its last
+     * node behind the next node of the reader, which happens when the writer
+     * resumed after the readers passed its last node.
+     */
+    private boolean tryPassExcluded(ReaderThreadLocalData reader, SGNodeAArrImpl next) {
+        // Announce the node before checking the writers; a resuming writer clears
+        // its idle flag before checking the announcements
+        reader.pending = next;
+        for (WriterThreadLocalData writer : writertld) {
+            if (writer == null || writer.idle) {
+                continue;
+            }
+            SGNodeAArrImpl written = writer.written;
+            if (written != tail && (written.getTuple() == null || written.getTuple().compareTo(next.getTuple()) < 0)) {
+                reader.pending = null;
+                blockedBy(reader, writer);
                 return false;
+            }
+        }
+        reader.passed = next;
+        reader.pending = null;
+        return true;
+    }
+
+    /**
+     * Record that the reader is waiting for a writer, and exclude the writer if
+     * it did not add anything for longer than the idle timeout.
+     */
+    private void blockedBy(ReaderThreadLocalData reader, WriterThreadLocalData writer) {
+        if (idleTimeoutNanos == Long.MAX_VALUE) {
+            return;
+        }
+        final SGNodeAArrImpl written = writer.written;
+        final long now = System.nanoTime();
+        if (reader.blockedWriter != writer || reader.blockedNode != written) {
+            reader.blockedWriter = writer;
+            reader.blockedNode = written;
+            reader.blockedSince = now;
+            return;
+        }
+        if (now - reader.blockedSince < idleTimeoutNanos) {
+            return;
+        }
+        // The writer holds its lock while adding, so it either sees the flag
+        // before adding or changes its last node before the flag is set
+        synchronized (writer) {
+            if (writer.written == written && !writer.idle) {
+                if (!writer.excluded) {
+                    writer.excluded = true;
+                    excludedWriters.incrementAndGet();
+                }
+                writer.idle = true;
+            }
+        }
+        reader.blockedWriter = null;
+    }
+
+    /**
+     * Called by an excluded writer that adds a tuple again. Wait for the readers that
+     * are about to pass the tuple position and check that no reader passed it.
+     *
+     * @return {@code false} if the tuple is older than a returned tuple.
+     */
+    private boolean resume(WriterThreadLocalData ln, T obj) {
+        ln.idle = false;
+        for (ReaderThreadLocalData reader : readertld) {
+            if (reader == null) {
+                continue;
+            }
+            SGNodeAArrImpl pending;
+            while ((pending = reader.pending) != null && pending.getTuple().compareTo(obj) > 0) {
+                Thread.yield();
+            }
+            SGNodeAArrImpl passed = reader.passed;
+            if (passed != null && passed.getTuple().compareTo(obj) > 0) {
+                return false;
+            }
+        }
         return true;
     }
 
@@ -113,14 +627,54 @@ public class ScaleGateAArrImpl<T extends Comparable<T>> implements ScaleGate<T>
         }
     }
 
-    private SGNodeAArrImpl internalAddTuple(T obj, int inputID) {
-        int levels = 1;
+    private SGNodeAArrImpl internalAddTuple(T obj, int inputID, boolean heartbeat) {
         WriterThreadLocalData ln = getWriterLocal(inputID);
+        // Uncontended except when a reader excludes this writer
+        synchronized (ln) {
+            // The readers might have passed the tuples of an added writer that are
+            // older than its first heartbeat
+            if (ln.lowerBound != null) {
+                if (obj.compareTo((T) ln.lowerBound) < 0) {
+                    if (!heartbeat) {
+                        lateTuples.incrementAndGet();
+                    }
+                    return null;
+                }
+                ln.lowerBound = null;
+            }
+            // An excluded writer stays behind the readers until it adds a tuple
+            // in order, so all its tuples until then are checked
+            if ((ln.idle || ln.excluded) && !resume(ln, obj)) {
+                if (!heartbeat) {
+                    lateTuples.incrementAndGet();
+                }
+                return null;
+            }
+            SGNodeAArrImpl newNode = insert(obj, ln, inputID, heartbeat);
+            if (ln.excluded) {
+                // The writer is in order again
+                ln.excluded = false;
+                excludedWriters.decrementAndGet();
+            }
+            return newNode;
+        }
+    }
+
+    private SGNodeAArrImpl insert(T obj, WriterThreadLocalData ln, int inputID, boolean heartbeat) {
+        int levels = 1;
 
         while (ln.rand.nextBoolean() && levels < maxlevels)
             levels++;
 
-        SGNodeAArrImpl newNode = new SGNodeAArrImpl(levels, obj, ln, inputID);
+        SGNodeAArrImpl newNode = new SGNodeAArrImpl(levels, obj, ln, inputID, heartbeat);
+        if (readMode == ReadMode.PARTITIONED && !heartbeat) {
+            ReaderThreadLocalData[] readers = partitionReaders;
+            ReaderThreadLocalData reader = readers[Math.floorMod(partitioner.applyAsInt(obj), readers.length)];
+            newNode.partition = reader;
+            // Only this writer writes its row
+            final int cell = inputID * assignedRowLength + reader.id;
+            assignedCounts.lazySet(cell, assignedCounts.get(cell) + 1);
+        }
         SGNodeAArrImpl[] update = ln.update;
         SGNodeAArrImpl curNode = update[maxlevels - 1];
 
@@ -140,6 +694,10 @@ public class ScaleGateAArrImpl<T extends Comparable<T>> implements ScaleGate<T>
         }
 
         ln.written = newNode;
+        if (!heartbeat) {
+            // Only this writer writes its counter
+            writtenCounts.lazySet(inputID * PADDING, writtenCounts.get(inputID * PADDING) + 1);
+        }
         return newNode;
     }
 
@@ -154,6 +712,13 @@ public class ScaleGateAArrImpl<T extends Comparable<T>> implements ScaleGate<T>
     protected static class WriterThreadLocalData<T extends Comparable<T>> {
         // reference to the last written node by the respective writer
         volatile SGNodeAArrImpl<T> written;
+        // set by the readers when the writer is idle, cleared when it adds again
+        volatile boolean idle;
+        // counted in excludedWriters, guarded by the lock of this object
+        boolean excluded;
+        // for an added writer, the oldest tuple that can still be merged, until
+        // one is added; guarded by the lock of this object
+        T lowerBound;
         SGNodeAArrImpl<T>[] update;
         final Random rand;
 
@@ -169,9 +734,23 @@ public class ScaleGateAArrImpl<T extends Comparable<T>> implements ScaleGate<T>
 
     protected static class ReaderThreadLocalData<T extends Comparable<T>> {
         SGNodeAArrImpl<T> localHead;
-
-        public ReaderThreadLocalData(SGNodeAArrImpl<T> lhead) {
+        boolean allStarted;
+        // node that the reader is about to pass and last node it passed while
+        // some writers were excluded, checked by resuming writers
+        volatile SGNodeAArrImpl<T> pending;
+        volatile SGNodeAArrImpl<T> passed;
+        // writer that the reader is waiting for, its last node and since when
+        WriterThreadLocalData<T> blockedWriter;
+        SGNodeAArrImpl<T> blockedNode;
+        long blockedSince;
+
+        final int id;
+        // set when the reader stops receiving new tuples, before it is removed
+        volatile boolean draining;
+
+        public ReaderThreadLocalData(SGNodeAArrImpl<T> lhead, int id) {
             localHead = lhead;
+            this.id = id;
         }
     }
 }
@@ -0,0 +1,866 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.scalegate;
+
+import common.tuple.RichTuple;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@link ScaleGate} for {@link RichTuple}s that orders them by
+ * {@link RichTuple#getTimestamp()}. It follows the protocol of
+ * {@link ScaleGateAArrImpl}, including heartbeats and idle writers, with
+ * changes that reduce the cost per tuple:
+ * <ul>
+ * <li>Nodes store the timestamp inline, so the skip list is searched with
+ * primitive comparisons instead of virtual {@code compareTo} calls.</li>
+ * <li>Node levels are drawn from a per-writer xorshift generator with a single
+ * call per node, instead of one call to a shared {@link java.util.Random} per
+ * level.</li>
+ * <li>Nodes are recycled. Every {@link #RECLAIM_INTERVAL} tuples, a reader that
+ * acquires the reclaim lock without waiting returns the nodes that all readers
+ * and writers have passed to the pools of the writers that created them.</li>
+ * </ul>
+ * A node can be recycled once it precedes the position of every reader and the
+ * position from which every writer starts searching, because links in the skip
+ * list only point forward and insertions only happen after these positions.
+ * Writers and readers that are added copy their positions from the others
+ * while holding the reclaim lock, and the nodes of removed writers are left to
+ * the GC.
+ *
+ * @param <T> The type of tuples.
+ */
+public class TimestampScaleGate<T extends RichTuple> implements ScaleGate<T> {
+
+    public static final int RECLAIM_INTERVAL = 256;
+    // Nodes kept per writer and level, the rest are left to the GC
+    private static final int POOL_CAPACITY = 1024;
+    // Counters are spaced by 128 bytes so that threads do not share cache lines
+    private static final int PADDING = 16;
+
+    private final int maxLevels;
+    private final Node<T> head;
+    private final Node<T> tail;
+    // Indexed by id, null for the ids that are not used. Replaced when writers or
+    // readers are added or removed.
+    private volatile Writer<T>[] writers;
+    private volatile Reader<T>[] readers;
+
+    private final AtomicLongArray writtenCounts;
+    private final AtomicLongArray readCounts;
+    private final int readRowLength;
+    private final AtomicLongArray assignedCounts;
+    private final int assignedRowLength;
+
+    private final long idleTimeoutNanos;
+    private final AtomicInteger excludedWriters = new AtomicInteger();
+    private final AtomicLong lateTuples = new AtomicLong();
+
+    private ReadMode readMode = ReadMode.BROADCAST;
+    private ToIntFunction<? super T> partitioner;
+    // Replaced with the locks of all the writers held, see ScaleGateAArrImpl
+    private volatile Reader<T>[] partitionReaders;
+
+    private final ReentrantLock reclaimLock = new ReentrantLock();
+    // First node that has not been recycled and nodes to recycle per writer,
+    // guarded by reclaimLock
+    private Node<T> reclaimFrom;
+    private final Node<T>[] reclaimed;
+
+    public TimestampScaleGate(int maxLevels, int writers, int readers) {
+        this(maxLevels, writers, readers, Long.MAX_VALUE);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param idleTimeoutMillis The time after which a writer that blocks the
+     *                          readers without adding anything is excluded, or
+     *                          {@link Long#MAX_VALUE} to never exclude writers.
+     * @see ScaleGateAArrImpl#ScaleGateAArrImpl(int, int, int, long)
+     */
+    public TimestampScaleGate(int maxLevels, int writers, int readers, long idleTimeoutMillis) {
+        this(maxLevels, writers, readers, writers, readers, idleTimeoutMillis);
+    }
+
+    /**
+     * Construct a ScaleGate to which writers and readers can be added and removed
+     * while it is used, up to the given numbers.
+     *
+     * @see ScaleGateAArrImpl#ScaleGateAArrImpl(int, int, int, int, int, long)
+     */
+    @SuppressWarnings("unchecked")
+    public TimestampScaleGate(int maxLevels, int writers, int readers, int maxWriters, int maxReaders,
+            long idleTimeoutMillis) {
+        if (writers < 0 || writers > maxWriters || readers < 1 || readers > maxReaders) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid number of writers (%d of %d) or readers (%d of %d)", writers, maxWriters, readers,
+                    maxReaders));
+        }
+        this.maxLevels = maxLevels;
+        this.idleTimeoutNanos = idleTimeoutMillis == Long.MAX_VALUE ? Long.MAX_VALUE
+                : TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.head = new Node<>(maxLevels);
+        this.tail = new Node<>(maxLevels);
+        for (int i = 0; i < maxLevels; i++) {
+            head.next.set(i, tail);
+        }
+        this.reclaimFrom = head;
+        this.writers = new Writer[maxWriters];
+        for (int i = 0; i < writers; i++) {
+            this.writers[i] = new Writer<>(head, maxLevels, i);
+        }
+        this.reclaimed = new Node[maxWriters];
+        this.readers = new Reader[maxReaders];
+        for (int i = 0; i < readers; i++) {
+            this.readers[i] = new Reader<>(head, i);
+        }
+        this.partitionReaders = Arrays.copyOf(this.readers, readers);
+        this.writtenCounts = new AtomicLongArray(maxWriters * PADDING);
+        this.readRowLength = ((maxWriters + 2 + PADDING - 1) / PADDING) * PADDING;
+        this.readCounts = new AtomicLongArray(maxReaders * readRowLength);
+        this.assignedRowLength = ((maxReaders + PADDING - 1) / PADDING) * PADDING;
+        this.assignedCounts = new AtomicLongArray(maxWriters * assignedRowLength);
+    }
+
+    @Override
+    public T getNextReadyTuple(int readerID) {
+        final Reader<T> reader = readers[readerID];
+        while (true) {
+            final Node<T> next = reader.head.next.get(0);
+            if (next == tail) {
+                return null;
+            }
+            if (!reader.allStarted) {
+                Writer<T> missing = notStartedWriter();
+                if (missing != null) {
+                    blockedBy(reader, missing);
+                    return null;
+                }
+                reader.allStarted = true;
+            }
+            final Writer<T> owner = next.writer;
+            if (next == owner.written && !owner.idle) {
+                blockedBy(reader, owner);
+                return null;
+            }
+            if (excludedWriters.get() > 0 && !tryPassExcluded(reader, next)) {
+                return null;
+            }
+            reader.blockedWriter = null;
+            Reader.HEAD.lazySet(reader, next);
+            if (next.heartbeat) {
+                continue;
+            }
+            final T tuple = next.tuple;
+            final int row = readerID * readRowLength;
+            readCounts.lazySet(row + next.writerID, readCounts.get(row + next.writerID) + 1);
+            readCounts.lazySet(row + writers.length, readCounts.get(row + writers.length) + 1);
+            if (++reader.sinceReclaim >= RECLAIM_INTERVAL) {
+                reader.sinceReclaim = 0;
+                tryReclaim();
+            }
+            if (isDeliveredTo(next, reader)) {
+                if (next.partition == reader) {
+                    readCounts.lazySet(row + writers.length + 1, readCounts.get(row + writers.length + 1) + 1);
+                }
+                return tuple;
+            }
+        }
+    }
+
+    private boolean isDeliveredTo(Node<T> node, Reader<T> reader) {
+        switch (readMode) {
+        case PARTITIONED:
+            return node.partition == reader;
+        case SHARED:
+            return node.tryAssign();
+        default:
+            return true;
+        }
+    }
+
+    @Override
+    public void setReadMode(ReadMode mode, ToIntFunction<? super T> partitioner) {
+        if (mode == ReadMode.PARTITIONED && partitioner == null) {
+            throw new IllegalArgumentException("PARTITIONED mode requires a partitioner");
+        }
+        this.readMode = mode;
+        this.partitioner = partitioner;
+    }
+
+    @Override
+    public synchronized int addWriter() {
+        final int writerID = freeId(writers);
+        // Positions are copied from the other writers and readers, so no node is
+        // recycled meanwhile
+        reclaimLock.lock();
+        try {
+            lockWriters(writers, 0, () -> join(writerID));
+        } finally {
+            reclaimLock.unlock();
+        }
+        return writerID;
+    }
+
+    /** Called with the locks of all the writers held, see ScaleGateAArrImpl. */
+    private void join(int writerID) {
+        final Writer<T> joining = new Writer<>(head, maxLevels, writerID);
+        Writer<T> frontier = null;
+        for (Writer<T> writer : writers) {
+            if (writer == null || writer.idle || writer.excluded || writer.written == tail) {
+                continue;
+            }
+            if (!writer.started()) {
+                writers = with(writers, writerID, joining);
+                return;
+            }
+            if (frontier == null || writer.writtenTimestamp < frontier.writtenTimestamp) {
+                frontier = writer;
+            }
+        }
+        if (frontier != null) {
+            System.arraycopy(frontier.update, 0, joining.update, 0, maxLevels);
+            insert(joining, null, frontier.writtenTimestamp, true);
+            joining.lowerBound = frontier.writtenTimestamp;
+        } else {
+            Node<T> node = reclaimFrom;
+            final int levels = node.next.length();
+            final Node<T>[] last = Arrays.copyOf(joining.update, levels);
+            for (int i = levels - 1; i >= 0; i--) {
+                Node<T> next;
+                while ((next = node.next.get(i)) != tail) {
+                    node = next;
+                }
+                last[i] = node;
+            }
+            if (node != head) {
+                // The heartbeat has all the levels and is the only node in the
+                // ones that the start position does not have
+                final Node<T> heartbeat = new Node<>(maxLevels, joining);
+                heartbeat.timestamp = node.timestamp;
+                heartbeat.heartbeat = true;
+                for (int i = 0; i < maxLevels; i++) {
+                    heartbeat.next.lazySet(i, i < levels ? last[i].next.get(i) : tail);
+                    joining.update[i] = heartbeat;
+                }
+                // Nothing is added concurrently, and the links are published when
+                // the writer locks are released
+                for (int i = 0; i < levels; i++) {
+                    last[i].next.set(i, heartbeat);
+                }
+                joining.writtenTimestamp = node.timestamp;
+                joining.written = heartbeat;
+                joining.low = heartbeat;
+                joining.lowerBound = node.timestamp;
+            } else {
+                joining.excluded = true;
+                excludedWriters.incrementAndGet();
+            }
+        }
+        writers = with(writers, writerID, joining);
+    }
+
+    @Override
+    public synchronized void removeWriter(int writerID) {
+        final Writer<T> writer = writers[writerID];
+        if (writer == null) {
+            throw new IllegalArgumentException("No writer with id " + writerID);
+        }
+        synchronized (writer) {
+            writer.idle = true;
+            if (writer.excluded) {
+                writer.excluded = false;
+                excludedWriters.decrementAndGet();
+            }
+        }
+        writers = with(writers, writerID, null);
+    }
+
+    @Override
+    public synchronized int addReader() {
+        final int readerID = freeId(readers);
+        reclaimLock.lock();
+        try {
+            lockWriters(writers, 0, () -> {
+                final Node<T> start = slowestReader().head;
+                final long[] ahead = new long[writers.length];
+                for (Node<T> node = start.next.get(0); node != tail; node = node.next.get(0)) {
+                    if (!node.heartbeat) {
+                        ahead[node.writerID]++;
+                    }
+                }
+                final int row = readerID * readRowLength;
+                long total = 0;
+                for (int i = 0; i < writers.length; i++) {
+                    final long read = writtenCounts.get(i * PADDING) - ahead[i];
+                    readCounts.set(row + i, read);
+                    total += read;
+                }
+                readCounts.set(row + writers.length, total);
+                readCounts.set(row + writers.length + 1, 0);
+                for (int i = 0; i < writers.length; i++) {
+                    assignedCounts.set(i * assignedRowLength + readerID, 0);
+                }
+                readers = with(readers, readerID, new Reader<>(start, readerID));
+                partitionReaders = partitionReaders(readers);
+            });
+        } finally {
+            reclaimLock.unlock();
+        }
+        return readerID;
+    }
+
+    @Override
+    public synchronized void drainReader(int readerID) {
+        final Reader<T> reader = getPresentReader(readerID);
+        if (reader.draining) {
+            return;
+        }
+        if (partitionReaders.length == 1) {
+            throw new IllegalStateException("Cannot drain the last reader");
+        }
+        lockWriters(writers, 0, () -> {
+            reader.draining = true;
+            partitionReaders = partitionReaders(readers);
+        });
+    }
+
+    @Override
+    public boolean isDrained(int readerID) {
+        final Reader<T> reader = getPresentReader(readerID);
+        if (!reader.draining) {
+            return false;
+        }
+        if (readMode != ReadMode.PARTITIONED) {
+            return true;
+        }
+        long assigned = 0;
+        for (int i = 0; i < writers.length; i++) {
+            assigned += assignedCounts.get(i * assignedRowLength + readerID);
+        }
+        return readCounts.get(readerID * readRowLength + writers.length + 1) == assigned;
+    }
+
+    @Override
+    public synchronized void removeReader(int readerID) {
+        final Reader<T> reader = getPresentReader(readerID);
+        if (readMode == ReadMode.PARTITIONED && !isDrained(readerID)) {
+            throw new IllegalStateException("Reader " + readerID + " must be drained before it is removed");
+        }
+        if (!reader.draining && partitionReaders.length == 1) {
+            throw new IllegalStateException("Cannot remove the last reader");
+        }
+        readers = with(readers, readerID, null);
+        partitionReaders = partitionReaders(readers);
+    }
+
+    private Reader<T> getPresentReader(int readerID) {
+        final Reader<T> reader = readers[readerID];
+        if (reader == null) {
+            throw new IllegalArgumentException("No reader with id " + readerID);
+        }
+        return reader;
+    }
+
+    @Override
+    public int maxWriters() {
+        return writers.length;
+    }
+
+    @Override
+    public int maxReaders() {
+        return readers.length;
+    }
+
+    private void lockWriters(Writer<T>[] writers, int from, Runnable action) {
+        if (from == writers.length) {
+            action.run();
+        } else if (writers[from] == null) {
+            lockWriters(writers, from + 1, action);
+        } else {
+            synchronized (writers[from]) {
+                lockWriters(writers, from + 1, action);
+            }
+        }
+    }
+
+    private Reader<T> slowestReader() {
+        Reader<T> slowest = null;
+        long slowestRead = Long.MAX_VALUE;
+        for (int i = 0; i < readers.length; i++) {
+            final long read = readCounts.get(i * readRowLength + writers.length);
+            if (readers[i] != null && read < slowestRead) {
+                slowest = readers[i];
+                slowestRead = read;
+            }
+        }
+        return slowest;
+    }
+
+    private static int freeId(Object[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == null) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("All the " + ids.length + " ids are used");
+    }
+
+    private static <E> E[] with(E[] array, int index, E element) {
+        final E[] copy = Arrays.copyOf(array, array.length);
+        copy[index] = element;
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Reader<T>[] partitionReaders(Reader<T>[] readers) {
+        return Arrays.stream(readers).filter(reader -> reader != null && !reader.draining).toArray(Reader[]::new);
+    }
+
+    @Override
+    public void addTuple(T tuple, int writerID) {
+        add(tuple, tuple.getTimestamp(), writerID, false);
+    }
+
+    @Override
+    public void addHeartbeat(T watermark, int writerID) {
+        add(null, watermark.getTimestamp(), writerID, true);
+    }
+
+    @Override
+    public void letItFlush() {
+        for (Writer<T> writer : writers) {
+            if (writer != null) {
+                writer.writtenTimestamp = Long.MAX_VALUE;
+                writer.written = tail;
+            }
+        }
+    }
+
+    @Override
+    public boolean hasBeenEmptied() {
+        for (Reader<T> reader : readers) {
+            if (reader != null && reader.head.next.get(0) != tail) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        long slowestRead = Long.MAX_VALUE;
+        final Reader<T>[] readers = this.readers;
+        for (int i = 0; i < readers.length; i++) {
+            if (readers[i] != null) {
+                slowestRead = Math.min(slowestRead, readCounts.get(i * readRowLength + writers.length));
+            }
+        }
+        long written = 0;
+        for (int i = 0; i < writers.length; i++) {
+            written += writtenCounts.get(i * PADDING);
+        }
+        return (int) Math.min(Math.max(written - slowestRead, 0), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int size(int writerID) {
+        long slowestRead = Long.MAX_VALUE;
+        final Reader<T>[] readers = this.readers;
+        for (int i = 0; i < readers.length; i++) {
+            if (readers[i] != null) {
+                slowestRead = Math.min(slowestRead, readCounts.get(i * readRowLength + writerID));
+            }
+        }
+        long written = writtenCounts.get(writerID * PADDING);
+        return (int) Math.min(Math.max(written - slowestRead, 0), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getLateTuples() {
+        return lateTuples.get();
+    }
+
+    private void add(T tuple, long timestamp, int writerID, boolean heartbeat) {
+        final Writer<T> writer = writers[writerID];
+        // Uncontended except when a reader excludes this writer
+        synchronized (writer) {
+            // The readers might have passed the tuples of an added writer that are
+            // older than its first heartbeat
+            if (timestamp < writer.lowerBound || (writer.idle || writer.excluded) && !resume(writer, timestamp)) {
+                if (!heartbeat) {
+                    lateTuples.incrementAndGet();
+                }
+                return;
+            }
+            insert(writer, tuple, timestamp, heartbeat);
+            writer.additions++;
+            if (writer.excluded) {
+                writer.excluded = false;
+                excludedWriters.decrementAndGet();
+            }
+            // Counted with the lock held, so that added readers see exact counts
+            if (!heartbeat) {
+                writtenCounts.lazySet(writerID * PADDING, writtenCounts.get(writerID * PADDING) + 1);
+            }
+        }
+    }
+
+    private void insert(Writer<T> writer, T tuple, long timestamp, boolean heartbeat) {
+        final int levels = writer.randomLevels();
+        final Node<T> node = writer.newNode(levels);
+        node.timestamp = timestamp;
+        node.tuple = tuple;
+        node.heartbeat = heartbeat;
+        Node.ASSIGNED.lazySet(node, 0);
+        if (readMode == ReadMode.PARTITIONED && !heartbeat) {
+            final Reader<T>[] readers = partitionReaders;
+            final Reader<T> reader = readers[Math.floorMod(partitioner.applyAsInt(tuple), readers.length)];
+            node.partition = reader;
+            final int cell = writer.id * assignedRowLength + reader.id;
+            assignedCounts.lazySet(cell, assignedCounts.get(cell) + 1);
+        }
+
+        final Node<T>[] update = writer.update;
+        Node<T> current = update[maxLevels - 1];
+        for (int i = maxLevels - 1; i >= 0; i--) {
+            Node<T> next = current.next.get(i);
+            while (next != tail && next.timestamp < timestamp) {
+                current = next;
+                next = current.next.get(i);
+            }
+            update[i] = current;
+        }
+        for (int i = 0; i < levels; i++) {
+            Node<T> from = update[i];
+            while (true) {
+                Node<T> next = from.next.get(i);
+                if (next == tail || next.timestamp > timestamp) {
+                    node.next.lazySet(i, next);
+                    // The CAS publishes the node and its fields
+                    if (from.next.compareAndSet(i, next, node)) {
+                        break;
+                    }
+                } else {
+                    from = next;
+                }
+            }
+        }
+        writer.writtenTimestamp = timestamp;
+        writer.written = node;
+        // The next search starts from update[maxLevels - 1]
+        Writer.LOW.lazySet(writer, update[maxLevels - 1]);
+    }
+
+    private Writer<T> notStartedWriter() {
+        for (Writer<T> writer : writers) {
+            if (writer != null && !writer.started() && !writer.idle) {
+                return writer;
+            }
+        }
+        return null;
+    }
+
+    private boolean tryPassExcluded(Reader<T> reader, Node<T> next) {
+        reader.pendingTimestamp = next.timestamp;
+        for (Writer<T> writer : writers) {
+            if (writer == null || writer.idle) {
+                continue;
+            }
+            if (!writer.started() || writer.writtenTimestamp < next.timestamp) {
+                reader.pendingTimestamp = Long.MIN_VALUE;
+                blockedBy(reader, writer);
+                return false;
+            }
+        }
+        reader.passedTimestamp = next.timestamp;
+        reader.pendingTimestamp = Long.MIN_VALUE;
+        return true;
+    }
+
+    private void blockedBy(Reader<T> reader, Writer<T> writer) {
+        if (idleTimeoutNanos == Long.MAX_VALUE) {
+            return;
+        }
+        final long additions = writer.additions;
+        final long now = System.nanoTime();
+        if (reader.blockedWriter != writer || reader.blockedAdditions != additions) {
+            reader.blockedWriter = writer;
+            reader.blockedAdditions = additions;
+            reader.blockedSince = now;
+            return;
+        }
+        if (now - reader.blockedSince < idleTimeoutNanos) {
+            return;
+        }
+        synchronized (writer) {
+            if (writer.additions == additions && !writer.idle) {
+                if (!writer.excluded) {
+                    writer.excluded = true;
+                    excludedWriters.incrementAndGet();
+                }
+                writer.idle = true;
+            }
+        }
+        reader.blockedWriter = null;
+    }
+
+    private boolean resume(Writer<T> writer, long timestamp) {
+        writer.idle = false;
+        for (Reader<T> reader : readers) {
+            if (reader == null) {
+                continue;
+            }
+            while (reader.pendingTimestamp > timestamp) {
+                Thread.yield();
+            }
+            if (reader.passedTimestamp > timestamp) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void tryReclaim() {
+        if (!reclaimLock.tryLock()) {
+            return;
+        }
+        try {
+            reclaim();
+        } finally {
+            reclaimLock.unlock();
+        }
+    }
+
+    /** Called with reclaimLock held. */
+    private void reclaim() {
+        // Writers can be removed meanwhile, which does not take the reclaim lock
+        final Writer<T>[] writers = this.writers;
+        // Chain the reclaimed nodes per writer, to lock each writer once
+        Node<T> node = reclaimFrom;
+        while (node != tail && !isProtected(node)) {
+            Node<T> next = node.next.get(0);
+            // The nodes of removed writers are left to the GC
+            if (node.writer != null && node.writer == writers[node.writerID]) {
+                node.clear();
+                node.next.lazySet(0, reclaimed[node.writerID]);
+                reclaimed[node.writerID] = node;
+            }
+            node = next;
+        }
+        reclaimFrom = node;
+        for (int i = 0; i < writers.length; i++) {
+            if (reclaimed[i] != null) {
+                // Drop the chain if the writer was removed in between
+                if (this.writers[i] == writers[i]) {
+                    writers[i].recycle(reclaimed[i]);
+                }
+                reclaimed[i] = null;
+            }
+        }
+    }
+
+    private boolean isReaderHead(Node<T> node) {
+        for (Reader<T> reader : readers) {
+            if (reader != null && reader.head == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isProtected(Node<T> node) {
+        if (isReaderHead(node)) {
+            return true;
+        }
+        for (Writer<T> writer : writers) {
+            if (writer != null && writer.low == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node<T> {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Node> ASSIGNED = AtomicIntegerFieldUpdater.newUpdater(Node.class,
+                "assigned");
+
+        // Sized for the maximum level when allocated, so that pooled nodes can
+        // be reused by any node with the same number of levels
+        final AtomicReferenceArray<Node<T>> next;
+        final Writer<T> writer;
+        final int writerID;
+        long timestamp;
+        T tuple;
+        boolean heartbeat;
+        Reader<T> partition;
+        volatile int assigned;
+
+        Node(int levels) {
+            this(levels, null);
+        }
+
+        Node(int levels, Writer<T> writer) {
+            this.next = new AtomicReferenceArray<>(levels);
+            this.writer = writer;
+            this.writerID = writer == null ? -1 : writer.id;
+        }
+
+        boolean tryAssign() {
+            return assigned == 0 && ASSIGNED.compareAndSet(this, 0, 1);
+        }
+
+        /** Clear the links, so that recycled nodes do not keep other nodes alive. */
+        void clear() {
+            tuple = null;
+            partition = null;
+            for (int i = 0; i < next.length(); i++) {
+                next.lazySet(i, null);
+            }
+        }
+    }
+
+    private static final class Writer<T> {
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<Writer, Node> LOW = AtomicReferenceFieldUpdater
+                .newUpdater(Writer.class, Node.class, "low");
+
+        final int id;
+        final Node<T> head;
+        final Node<T>[] update;
+        // Last node added and its timestamp; the timestamp is also read by the
+        // readers, since the node can be recycled after they pass it
+        volatile Node<T> written;
+        volatile long writtenTimestamp = Long.MIN_VALUE;
+        // Position from which the next search starts, read by the reclaimer
+        volatile Node<T> low;
+        volatile boolean idle;
+        volatile long additions;
+        // Guarded by the lock of this object
+        boolean excluded;
+        // For an added writer, the oldest timestamp that can still be merged
+        long lowerBound = Long.MIN_VALUE;
+        private final Node<T>[][] pools;
+        private final int[] poolSizes;
+        private long seed;
+
+        @SuppressWarnings("unchecked")
+        Writer(Node<T> head, int maxLevels, int id) {
+            this.id = id;
+            this.head = head;
+            this.written = head;
+            this.low = head;
+            this.update = new Node[maxLevels];
+            for (int i = 0; i < maxLevels; i++) {
+                update[i] = head;
+            }
+            this.pools = new Node[maxLevels + 1][POOL_CAPACITY];
+            this.poolSizes = new int[maxLevels + 1];
+            this.seed = System.nanoTime() ^ (0x9E3779B97F4A7C15L * (id + 1));
+            if (seed == 0) {
+                seed = 1;
+            }
+        }
+
+        boolean started() {
+            return written != head;
+        }
+
+        /**
+         * @return A geometric number of levels in {@code [1, update.length]}, with
+         *         one level more with probability 1/2.
+         */
+        int randomLevels() {
+            long x = seed;
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            seed = x;
+            return Math.min(Long.numberOfTrailingZeros(x) + 1, update.length);
+        }
+
+        /** Called with the lock of this object held. */
+        Node<T> newNode(int levels) {
+            if (poolSizes[levels] > 0) {
+                Node<T> node = pools[levels][--poolSizes[levels]];
+                pools[levels][poolSizes[levels]] = null;
+                return node;
+            }
+            return new Node<>(levels, this);
+        }
+
+        /**
+         * Add cleared nodes to the pools.
+         *
+         * @param chain The nodes, linked at level 0.
+         */
+        synchronized void recycle(Node<T> chain) {
+            while (chain != null) {
+                final Node<T> node = chain;
+                chain = node.next.get(0);
+                node.next.lazySet(0, null);
+                final int levels = node.next.length();
+                if (poolSizes[levels] < POOL_CAPACITY) {
+                    pools[levels][poolSizes[levels]++] = node;
+                }
+            }
+        }
+    }
+
+    private static final class Reader<T> {
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<Reader, Node> HEAD = AtomicReferenceFieldUpdater
+                .newUpdater(Reader.class, Node.class, "head");
+
+        // Last node passed, read by the reclaimer
+        volatile Node<T> head;
+        boolean allStarted;
+        int sinceReclaim;
+        // Timestamp that the reader is about to pass and last timestamp passed
+        // while some writers were excluded, checked by resuming writers
+        volatile long pendingTimestamp = Long.MIN_VALUE;
+        volatile long passedTimestamp = Long.MIN_VALUE;
+        Writer<T> blockedWriter;
+        long blockedAdditions;
+        long blockedSince;
+        final int id;
+        // Set when the reader stops receiving new tuples, before it is removed
+        volatile boolean draining;
+
+        Reader(Node<T> head, int id) {
+            this.head = head;
+            this.id = id;
+        }
+    }
+}
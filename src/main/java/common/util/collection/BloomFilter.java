@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.util.collection;
+
+import java.util.Arrays;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Bloom filter for primitive {@code long} values. Membership tests can return
+ * false positives (with the configured probability, when at most the expected
+ * number of values have been added) but never false negatives.
+ */
+public final class BloomFilter {
+
+    private final long[] bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * Construct a filter with the optimal size for the given number of values and
+     * false positive probability.
+     *
+     * @param expectedInsertions The expected number of values.
+     * @param falsePositiveRate  The false positive probability, in (0, 1).
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        Validate.isTrue(expectedInsertions > 0, "expectedInsertions must be positive");
+        Validate.exclusiveBetween(0.0, 1.0, falsePositiveRate, "falsePositiveRate must be in (0, 1)");
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE)];
+        this.numBits = (long) bits.length * Long.SIZE;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+    }
+
+    public void add(long value) {
+        final long hash1 = mix(value);
+        final long hash2 = mix(hash1);
+        for (int i = 0; i < numHashes; i++) {
+            final long bit = Math.floorMod(hash1 + i * hash2, numBits);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @return {@code false} if the value was definitely never added,
+     *         {@code true} if it was probably added.
+     */
+    public boolean mightContain(long value) {
+        final long hash1 = mix(value);
+        final long hash2 = mix(hash1);
+        for (int i = 0; i < numHashes; i++) {
+            final long bit = Math.floorMod(hash1 + i * hash2, numBits);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.util.collection;
+
+import java.util.Arrays;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Map from primitive {@code long} keys to versioned values, with optional
+ * least-recently-used (LRU) eviction. The entries are stored in parallel arrays
+ * (key, value, version and the links of the LRU list), indexed by an open
+ * addressing hash table of entry positions, so that no object is allocated
+ * per entry.
+ * <p>
+ * Each value has a version (e.g., a timestamp); a value only replaces the
+ * existing value of its key if its version is not older.
+ *
+ * @param <V> The type of the values.
+ */
+public final class LongKeyedTable<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    private final int maxSize;
+    private int[] index;
+    private int mask;
+    private long[] keys;
+    private Object[] values;
+    private long[] versions;
+    // LRU list, from the least (head) to the most (tail) recently used entry
+    private int[] previous;
+    private int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    private int freeEntry = NONE;
+    private int usedEntries;
+    private long evictions;
+
+    /**
+     * Construct a table without a size bound.
+     */
+    public LongKeyedTable() {
+        this(0);
+    }
+
+    /**
+     * Construct a table that holds at most {@code maxSize} entries, evicting the
+     * least recently used entry when full.
+     *
+     * @param maxSize The maximum number of entries, or {@code 0} for no bound.
+     */
+    public LongKeyedTable(int maxSize) {
+        Validate.isTrue(maxSize >= 0, "maxSize must not be negative");
+        this.maxSize = maxSize;
+        allocate(maxSize > 0 ? maxSize : INITIAL_CAPACITY);
+    }
+
+    /**
+     * Get the value of a key, marking it as recently used.
+     *
+     * @param key The key.
+     * @return The value, or {@code null} if the key is not in the table.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int entry = find(key);
+        if (entry == NONE) {
+            return null;
+        }
+        touch(entry);
+        return (V) values[entry];
+    }
+
+    /**
+     * Insert or replace the value of a key, unless the existing value has a newer
+     * version.
+     *
+     * @param key     The key.
+     * @param value   The value, not {@code null}.
+     * @param version The version of the value.
+     * @return {@code true} if the table was updated.
+     */
+    public boolean put(long key, V value, long version) {
+        Validate.notNull(value, "value");
+        int entry = find(key);
+        if (entry != NONE) {
+            if (version < versions[entry]) {
+                return false;
+            }
+            values[entry] = value;
+            versions[entry] = version;
+            touch(entry);
+            return true;
+        }
+        if (maxSize > 0 && size == maxSize) {
+            evictions++;
+            remove(keys[head]);
+        }
+        entry = newEntry();
+        keys[entry] = key;
+        values[entry] = value;
+        versions[entry] = version;
+        linkLast(entry);
+        insertIndex(entry);
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove a key from the table.
+     *
+     * @param key The key.
+     * @return The removed value, or {@code null} if the key was not in the table.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = findSlot(key);
+        if (slot == NONE) {
+            return null;
+        }
+        int entry = index[slot] - 1;
+        deleteSlot(slot);
+        unlink(entry);
+        V value = (V) values[entry];
+        values[entry] = null;
+        next[entry] = freeEntry;
+        freeEntry = entry;
+        size--;
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of entries that were evicted because the table was full.
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    private int find(long key) {
+        int slot = findSlot(key);
+        return slot == NONE ? NONE : index[slot] - 1;
+    }
+
+    private int findSlot(long key) {
+        int slot = home(key);
+        while (index[slot] != 0) {
+            if (keys[index[slot] - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private void insertIndex(int entry) {
+        int slot = home(keys[entry]);
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = entry + 1;
+    }
+
+    /**
+     * Backward-shift deletion, which keeps the probe sequences intact without
+     * tombstones.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int current = slot;
+        while (true) {
+            current = (current + 1) & mask;
+            if (index[current] == 0) {
+                index[hole] = 0;
+                return;
+            }
+            int home = home(keys[index[current] - 1]);
+            boolean reachable = hole <= current ? (hole < home && home <= current) : (hole < home || home <= current);
+            if (!reachable) {
+                index[hole] = index[current];
+                hole = current;
+            }
+        }
+    }
+
+    private int newEntry() {
+        if (freeEntry != NONE) {
+            int entry = freeEntry;
+            freeEntry = next[entry];
+            return entry;
+        }
+        if (usedEntries == keys.length) {
+            grow();
+        }
+        return usedEntries++;
+    }
+
+    private void touch(int entry) {
+        if (entry != tail) {
+            unlink(entry);
+            linkLast(entry);
+        }
+    }
+
+    private void linkLast(int entry) {
+        previous[entry] = tail;
+        next[entry] = NONE;
+        if (tail == NONE) {
+            head = entry;
+        } else {
+            next[tail] = entry;
+        }
+        tail = entry;
+    }
+
+    private void unlink(int entry) {
+        if (previous[entry] == NONE) {
+            head = next[entry];
+        } else {
+            next[previous[entry]] = next[entry];
+        }
+        if (next[entry] == NONE) {
+            tail = previous[entry];
+        } else {
+            previous[next[entry]] = previous[entry];
+        }
+    }
+
+    private int home(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        versions = new long[capacity];
+        previous = new int[capacity];
+        next = new int[capacity];
+        allocateIndex(capacity);
+    }
+
+    private void allocateIndex(int capacity) {
+        int slots = INITIAL_CAPACITY;
+        while (slots < 2 * capacity) {
+            slots <<= 1;
+        }
+        index = new int[slots];
+        mask = slots - 1;
+    }
+
+    private void grow() {
+        // Only called when there are no free entries, i.e., all entries are in use
+        final int capacity = 2 * keys.length;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        next = Arrays.copyOf(next, capacity);
+        allocateIndex(capacity);
+        for (int entry = 0; entry < usedEntries; entry++) {
+            insertIndex(entry);
+        }
+    }
+}
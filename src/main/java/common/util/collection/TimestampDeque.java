@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package common.util.collection;
+
+import common.tuple.RichTuple;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Growable FIFO of {@link RichTuple}s backed by a circular array. Intended for
+ * window buffers where tuples are appended in timestamp order and evicted from
+ * the head once they become too old. Because the contents are sorted by
+ * timestamp, the eviction point can be found with a binary search instead of
+ * visiting every evicted tuple.
+ * <p>
+ * <b>The tuples must be added in non-decreasing timestamp order</b>, otherwise
+ * the timestamp-based functions have unspecified results. Tuples that might be
+ * out of order can be added with {@link #addSorted(RichTuple)}, which is cheap
+ * when the input is nearly sorted. This class is not thread-safe.
+ *
+ * @param <T> The type of tuples stored.
+ */
+public final class TimestampDeque<T extends RichTuple> implements Iterable<T> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] elements;
+    private int mask;
+    private int head;
+    private int size;
+
+    public TimestampDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param initialCapacity The initial capacity, rounded up to the next power of
+     *                        two.
+     */
+    public TimestampDeque(int initialCapacity) {
+        Validate.isTrue(initialCapacity > 0, "initialCapacity must be positive");
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity - 1, 1)) << 1;
+        this.elements = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Append a tuple to the tail of the deque.
+     *
+     * @param tuple The tuple, whose timestamp must not be smaller than the
+     *              timestamp of the current tail.
+     */
+    public void addLast(T tuple) {
+        Validate.notNull(tuple);
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & mask] = tuple;
+        size++;
+    }
+
+    /**
+     * Insert a tuple at its position in timestamp order, after all the tuples
+     * with the same or smaller timestamps. The position is searched from the tail,
+     * so the cost is proportional to the number of tuples with larger timestamps.
+     *
+     * @param tuple The tuple.
+     */
+    public void addSorted(T tuple) {
+        addLast(tuple);
+        final long timestamp = tuple.getTimestamp();
+        int position = size - 1;
+        while (position > 0) {
+            final int previous = (head + position - 1) & mask;
+            if (elementAt(previous).getTimestamp() <= timestamp) {
+                break;
+            }
+            elements[(head + position) & mask] = elements[previous];
+            position--;
+        }
+        elements[(head + position) & mask] = tuple;
+    }
+
+    /**
+     * @return The head of the deque or {@code null} if the deque is empty.
+     */
+    public T peekFirst() {
+        return size == 0 ? null : elementAt(head);
+    }
+
+    /**
+     * @return The tail of the deque or {@code null} if the deque is empty.
+     */
+    public T peekLast() {
+        return size == 0 ? null : elementAt((head + size - 1) & mask);
+    }
+
+    /**
+     * Remove and return the head of the deque.
+     *
+     * @return The head of the deque or {@code null} if the deque is empty.
+     */
+    public T pollFirst() {
+        if (size == 0) {
+            return null;
+        }
+        T tuple = elementAt(head);
+        elements[head] = null;
+        head = (head + 1) & mask;
+        size--;
+        return tuple;
+    }
+
+    /**
+     * Get the tuple at the given position, counting from the head.
+     *
+     * @param index The position, in {@code [0, size())}.
+     * @return The tuple in that position.
+     */
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size));
+        }
+        return elementAt((head + index) & mask);
+    }
+
+    /**
+     * Find the position of the first tuple whose timestamp is equal to or larger
+     * than the given timestamp, using a binary search.
+     *
+     * @param timestamp The timestamp to look for.
+     * @return The position of the first such tuple, or {@link #size()} if all the
+     *         tuples are older than {@code timestamp}.
+     */
+    public int firstIndexAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (elementAt((head + mid) & mask).getTimestamp() < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Remove the given number of tuples from the head of the deque.
+     *
+     * @param count The number of tuples to remove, at most {@link #size()}.
+     */
+    public void removeFirst(int count) {
+        Validate.isTrue(count >= 0 && count <= size, "Cannot remove %d elements from deque of size %d", count, size);
+        for (int i = 0; i < count; i++) {
+            elements[(head + i) & mask] = null;
+        }
+        head = (head + count) & mask;
+        size -= count;
+    }
+
+    /**
+     * Remove all the tuples with a timestamp strictly smaller than the given one.
+     *
+     * @param timestamp The earliest timestamp that will remain in the deque.
+     * @return The number of tuples removed.
+     */
+    public int removeBefore(long timestamp) {
+        int count = firstIndexAtOrAfter(timestamp);
+        removeFirst(count);
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        removeFirst(size);
+        head = 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int position) {
+        return (T) elements[position];
+    }
+
+    private void grow() {
+        int capacity = elements.length << 1;
+        Validate.validState(capacity > 0, "TimestampDeque cannot grow beyond %d elements", elements.length);
+        Object[] newElements = new Object[capacity];
+        // Unwrap the circular array so that the head is in position 0
+        int headPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, newElements, 0, headPart);
+        System.arraycopy(elements, 0, newElements, headPart, size - headPart);
+        elements = newElements;
+        mask = capacity - 1;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            sb.append(i > 0 ? ", " : "").append(get(i));
+        }
+        return sb.append("]").toString();
+    }
+}
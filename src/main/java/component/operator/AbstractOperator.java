@@ -85,6 +85,6 @@ public abstract class AbstractOperator<IN, OUT> extends AbstractComponent<IN, OU
 
     @Override
     protected void flushAction() {
-        getOutputs().stream().forEach(output -> output.flush());
+        getOutputs().stream().forEach(output -> output.flush(getIndex()));
     }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate;
+
+import common.tuple.RichTuple;
+import component.operator.in1.BaseOperator1In;
+import component.operator.router.HashBasedRouterOperator;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Aggregate implementation for sliding tuple-based windows that are defined
+ * per key, i.e., a window of size {@code WS} contains the last {@code WS}
+ * tuples of a specific key. Each key has its own counter and
+ * {@link KeyedTupleWindow}, both kept in a single map entry. Keys without
+ * tuples in their window are dropped from the map.
+ * <p>
+ * When the parallelism degree is larger than 1, each instance is only
+ * responsible for the keys that hash to its instance number (using the same
+ * partitioning as {@link HashBasedRouterOperator}) and ignores the rest. This
+ * makes it safe to use both with {@link query.Query#connectKeyBy} and with
+ * streams that deliver all tuples to all instances.
+ *
+ * @param <IN>  The type of input tuples.
+ * @param <OUT> The type of output tuples.
+ */
+public class KeyedTupleAggregate<IN extends RichTuple, OUT> extends BaseOperator1In<IN, OUT> {
+
+    private final int instance;
+    private final int parallelismDegree;
+    private final long WS;
+    private final long WA;
+    private final KeyedTupleWindow<IN, OUT> aggregateWindow;
+    private final Map<String, KeyWindow<IN, OUT>> windows = new HashMap<>();
+    private KeyExtractor keyExtractor;
+
+    public KeyedTupleAggregate(String id, int instance, int parallelismDegree, long windowSize, long windowSlide,
+            KeyedTupleWindow<IN, OUT> aggregateWindow) {
+        super(id);
+        this.instance = instance;
+        this.parallelismDegree = parallelismDegree;
+        this.WS = windowSize;
+        this.WA = windowSlide;
+        this.aggregateWindow = aggregateWindow;
+        this.keyExtractor = new BaseKeyExtractor();
+        Validate.isTrue(WA <= WS, "windowSlide must not be larger than windowSize");
+    }
+
+    public List<OUT> processTupleIn1(IN t) {
+
+        String key = keyExtractor.getKey(t);
+        if (parallelismDegree > 1 && HashBasedRouterOperator.partition(key, parallelismDegree) != instance) {
+            return Collections.emptyList();
+        }
+
+        KeyWindow<IN, OUT> keyWindow = windows.get(key);
+        if (keyWindow == null) {
+            keyWindow = new KeyWindow<>(aggregateWindow.factory());
+            keyWindow.window.setKey(key);
+            keyWindow.window.setInstanceNumber(instance);
+            keyWindow.window.setParallelismDegree(parallelismDegree);
+            windows.put(key, keyWindow);
+        }
+
+        List<OUT> result = new LinkedList<OUT>();
+
+        keyWindow.window.add(t);
+        keyWindow.tuples++;
+
+        if (keyWindow.tuples == WS) {
+            OUT outT = keyWindow.window.getAggregatedResult();
+            if (outT != null) {
+                result.add(outT);
+            }
+            keyWindow.window.slideBy(WA);
+            keyWindow.tuples -= WA;
+            if (keyWindow.tuples == 0) {
+                windows.remove(key);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the number of keys that currently have a non-empty window.
+     *
+     * @return The number of active keys.
+     */
+    public int activeKeys() {
+        return windows.size();
+    }
+
+    public void registerKeyExtractor(KeyExtractor k) {
+        this.keyExtractor = k;
+    }
+
+    @Override
+    public void enable() {
+        aggregateWindow.enable();
+        super.enable();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+        aggregateWindow.disable();
+    }
+
+    @Override
+    public boolean canRun() {
+        return aggregateWindow.canRun() && super.canRun();
+    }
+
+    /**
+     * Per-key state: the window and the number of tuples currently in it.
+     */
+    private static final class KeyWindow<IN extends RichTuple, OUT> {
+        private final KeyedTupleWindow<IN, OUT> window;
+        private long tuples;
+
+        private KeyWindow(KeyedTupleWindow<IN, OUT> window) {
+            this.window = window;
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate;
+
+import common.tuple.RichTuple;
+
+/**
+ * Tuple-based window of an aggregate function which is maintained separately
+ * for each key of the input stream. Every key gets its own instance of the
+ * window, created through {@link KeyedTupleWindow#factory()}, so the tuples
+ * counted by each window all share the same key.
+ *
+ * @param <IN>  The type of the input tuples.
+ * @param <OUT> The type of the output tuples.
+ * @see KeyedTupleAggregate
+ */
+public interface KeyedTupleWindow<IN extends RichTuple, OUT> extends TupleWindow<IN, OUT> {
+
+    /**
+     * Generate a new {@link KeyedTupleWindow} with the same configuration and
+     * probably a clear state.
+     *
+     * @return A new {@link KeyedTupleWindow} instance.
+     */
+    KeyedTupleWindow<IN, OUT> factory();
+
+    /**
+     * Setter for the key of the tuples that belong to this window.
+     *
+     * @param key The key of the tuples that belong to this window.
+     */
+    void setKey(String key);
+
+}
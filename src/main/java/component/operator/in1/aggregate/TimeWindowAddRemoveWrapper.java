@@ -1,18 +1,17 @@
 package component.operator.in1.aggregate;
 
 import common.tuple.RichTuple;
-
-import java.util.LinkedList;
+import common.util.collection.TimestampDeque;
 
 public class TimeWindowAddRemoveWrapper<IN extends RichTuple, OUT extends RichTuple>
         implements TimeWindowAddSlide<IN, OUT> {
 
     private TimeWindowAddRemove<IN, OUT> w;
-    LinkedList<IN> tuples;
+    TimestampDeque<IN> tuples;
 
     public TimeWindowAddRemoveWrapper(TimeWindowAddRemove<IN, OUT> w) {
         this.w = w;
-        tuples = new LinkedList<>();
+        tuples = new TimestampDeque<>();
     }
 
     @Override
@@ -23,20 +22,17 @@ public class TimeWindowAddRemoveWrapper<IN extends RichTuple, OUT extends RichTu
     @Override
     public void add(IN t) {
         w.add(t);
-        tuples.add(t);
+        tuples.addLast(t);
     }
 
     @Override
     public void slideTo(long startTimestamp) {
-        while (tuples.size() > 0) {
-            IN tuple = tuples.peek();
-            if (tuple.getTimestamp() < startTimestamp) {
-                w.remove(tuple);
-                tuples.pop();
-            } else {
-                break;
-            }
+        // Tuples are added in timestamp order, so the expired ones form a prefix
+        int expired = tuples.firstIndexAtOrAfter(startTimestamp);
+        for (int i = 0; i < expired; i++) {
+            w.remove(tuples.get(i));
         }
+        tuples.removeFirst(expired);
         w.setStartTimestamp(startTimestamp);
     }
 
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.sketch;
+
+import common.tuple.RichTuple;
+import java.io.Serializable;
+
+/**
+ * {@link SketchWindow} that estimates the number of distinct values in a window
+ * with a {@link HyperLogLog} sketch.
+ *
+ * <pre>
+ * query.addTimeAggregateOperator("distinct", 60_000, 10_000,
+ *         new DistinctCountWindow&lt;Request, Stats&gt;(10_000, 12, t -&gt; t.userId,
+ *                 (start, key, hll) -&gt; new Stats(start, key, hll.estimate())));
+ * </pre>
+ *
+ * @param <IN>  The type of the input tuples.
+ * @param <OUT> The type of the output tuples.
+ */
+public class DistinctCountWindow<IN extends RichTuple, OUT extends RichTuple>
+        extends SketchWindow<IN, OUT, HyperLogLog> {
+
+    private final int precision;
+    private final ValueFunction<IN> valueFunction;
+    private final SketchResultFunction<HyperLogLog, OUT> resultFunction;
+
+    /**
+     * Construct a new window.
+     *
+     * @param paneSize       The size of the panes, see {@link SketchWindow}.
+     * @param precision      The precision of the {@link HyperLogLog} sketches.
+     * @param valueFunction  Function returning the value of a tuple that is
+     *                       counted.
+     * @param resultFunction Function that produces the output tuple of a window.
+     */
+    public DistinctCountWindow(long paneSize, int precision, ValueFunction<IN> valueFunction,
+            SketchResultFunction<HyperLogLog, OUT> resultFunction) {
+        super(paneSize);
+        this.precision = precision;
+        this.valueFunction = valueFunction;
+        this.resultFunction = resultFunction;
+    }
+
+    @Override
+    public DistinctCountWindow<IN, OUT> factory() {
+        return new DistinctCountWindow<>(paneSize, precision, valueFunction, resultFunction);
+    }
+
+    @Override
+    protected HyperLogLog newSketch() {
+        return new HyperLogLog(precision);
+    }
+
+    @Override
+    protected void update(HyperLogLog sketch, IN t) {
+        sketch.add(valueFunction.value(t));
+    }
+
+    @Override
+    protected OUT getResult(long windowStart, HyperLogLog sketch) {
+        return resultFunction.apply(windowStart, key, sketch);
+    }
+
+    /**
+     * Function returning the value of a tuple whose distinct occurrences are
+     * counted.
+     *
+     * @param <IN> The type of the input tuples.
+     */
+    @FunctionalInterface
+    public interface ValueFunction<IN> extends Serializable {
+        Object value(IN t);
+    }
+}
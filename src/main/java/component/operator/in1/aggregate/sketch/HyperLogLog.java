@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.sketch;
+
+import java.util.Arrays;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * HyperLogLog sketch (Flajolet et al.) that estimates the number of distinct
+ * values with {@code 2^precision} one-byte registers. The relative standard
+ * error of the estimate is about {@code 1.04 / sqrt(2^precision)}, e.g., 1.6%
+ * for precision 12 (4KB).
+ */
+public final class HyperLogLog implements MergeableSketch<HyperLogLog> {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        Validate.inclusiveBetween(MIN_PRECISION, MAX_PRECISION, precision, "precision must be in [%d, %d]",
+                MIN_PRECISION, MAX_PRECISION);
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Add a value to the sketch.
+     *
+     * @param value The value.
+     */
+    public void add(long value) {
+        addHash(mix(value));
+    }
+
+    /**
+     * Add a value to the sketch, using its {@link Object#hashCode()}. Integral
+     * numbers are added with their full 64-bit value.
+     *
+     * @param value The value.
+     */
+    public void add(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            add(((Number) value).longValue());
+        } else {
+            add(value == null ? 0 : value.hashCode());
+        }
+    }
+
+    private void addHash(long hash) {
+        final int index = (int) (hash >>> (Long.SIZE - precision));
+        // The guard bit bounds the rank when the remaining bits are all zero
+        final long remaining = (hash << precision) | (1L << (precision - 1));
+        final byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * @return The estimated number of distinct values added to the sketch.
+     */
+    public long estimate() {
+        final int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate for small cardinalities
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    @Override
+    public void merge(HyperLogLog other) {
+        Validate.isTrue(other.precision == precision, "Cannot merge sketches with different precision");
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * Finalization mix of MurmurHash3, spreading the bits of the value over the
+     * whole hash.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.sketch;
+
+import java.util.Arrays;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * KLL quantile sketch (Karnin, Lang and Liberty). Values are stored in a
+ * hierarchy of compactors, where an item at level {@code h} represents
+ * {@code 2^h} values; when a level is full, it is sorted and every other item
+ * is promoted to the next level. The size of the sketch grows logarithmically
+ * with the number of values and the rank error is about {@code 1.7 / k}.
+ */
+public final class KllSketch implements MergeableSketch<KllSketch> {
+
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private final int k;
+    private double[][] levels = new double[0][];
+    private int[] levelSizes = new int[0];
+    private int height;
+    private int size;
+    private int maxSize;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long randomState;
+    // Sorted view of the items and their cumulative weights, built on demand
+    private double[] sortedItems;
+    private long[] cumulativeWeights;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        Validate.isTrue(k >= 8, "k must be at least 8");
+        this.k = k;
+        this.randomState = System.nanoTime() | 1;
+        grow();
+    }
+
+    /**
+     * Add a value to the sketch. {@code NaN} values are ignored.
+     *
+     * @param value The value.
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        append(0, value);
+        size++;
+        count++;
+        sortedItems = null;
+        if (size >= maxSize) {
+            compress();
+        }
+    }
+
+    @Override
+    public void merge(KllSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        Validate.isTrue(other.k == k, "Cannot merge sketches with different k");
+        while (height < other.height) {
+            grow();
+        }
+        for (int h = 0; h < other.height; h++) {
+            for (int i = 0; i < other.levelSizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+            size += other.levelSizes[h];
+        }
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        sortedItems = null;
+        while (size >= maxSize) {
+            compress();
+        }
+    }
+
+    /**
+     * Get the (approximate) value at the given quantile.
+     *
+     * @param fraction The quantile, in [0, 1].
+     * @return The value, or {@code NaN} if the sketch is empty.
+     */
+    public double quantile(double fraction) {
+        Validate.inclusiveBetween(0.0, 1.0, fraction, "fraction must be in [0, 1]");
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction == 0) {
+            return min;
+        }
+        if (fraction == 1) {
+            return max;
+        }
+        sort();
+        final long totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+        final double target = fraction * totalWeight;
+        int index = 0;
+        while (index < sortedItems.length - 1 && cumulativeWeights[index] < target) {
+            index++;
+        }
+        return sortedItems[index];
+    }
+
+    /**
+     * Get the (approximate) fraction of the values that are smaller than or equal
+     * to the given value.
+     *
+     * @param value The value.
+     * @return The normalized rank, or {@code NaN} if the sketch is empty.
+     */
+    public double rank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        sort();
+        long weight = 0;
+        for (int i = 0; i < sortedItems.length && sortedItems[i] <= value; i++) {
+            weight = cumulativeWeights[i];
+        }
+        return (double) weight / cumulativeWeights[cumulativeWeights.length - 1];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    private void append(int level, double value) {
+        if (levelSizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(2 * levels[level].length, 8));
+        }
+        levels[level][levelSizes[level]++] = value;
+    }
+
+    private int capacity(int level) {
+        return (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, height - level - 1)) + 1;
+    }
+
+    private void grow() {
+        height++;
+        levels = Arrays.copyOf(levels, height);
+        levelSizes = Arrays.copyOf(levelSizes, height);
+        levels[height - 1] = new double[0];
+        maxSize = 0;
+        for (int h = 0; h < height; h++) {
+            maxSize += capacity(h);
+        }
+    }
+
+    /**
+     * Compact the lowest level that reached its capacity.
+     */
+    private void compress() {
+        for (int h = 0; h < height; h++) {
+            if (levelSizes[h] >= capacity(h)) {
+                if (h + 1 >= height) {
+                    grow();
+                }
+                compact(h);
+                return;
+            }
+        }
+    }
+
+    private void compact(int level) {
+        final double[] items = levels[level];
+        final int n = levelSizes[level];
+        Arrays.sort(items, 0, n);
+        // With an odd number of items, the smallest one stays at this level
+        final int leftover = n & 1;
+        for (int i = leftover + (nextBoolean() ? 1 : 0); i < n; i += 2) {
+            append(level + 1, items[i]);
+        }
+        levelSizes[level] = leftover;
+        size = 0;
+        for (int h = 0; h < height; h++) {
+            size += levelSizes[h];
+        }
+    }
+
+    private boolean nextBoolean() {
+        // xorshift64
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        return (randomState & 1) == 0;
+    }
+
+    private void sort() {
+        if (sortedItems != null) {
+            return;
+        }
+        // Each level is sorted and then merged with the levels below it
+        double[] items = new double[0];
+        long[] weights = new long[0];
+        for (int h = 0; h < height; h++) {
+            final int n = levelSizes[h];
+            double[] levelItems = Arrays.copyOf(levels[h], n);
+            Arrays.sort(levelItems);
+            double[] mergedItems = new double[items.length + n];
+            long[] mergedWeights = new long[items.length + n];
+            int i = 0, j = 0, m = 0;
+            while (i < items.length || j < n) {
+                if (j >= n || (i < items.length && items[i] <= levelItems[j])) {
+                    mergedItems[m] = items[i];
+                    mergedWeights[m++] = weights[i++];
+                } else {
+                    mergedItems[m] = levelItems[j++];
+                    mergedWeights[m++] = 1L << h;
+                }
+            }
+            items = mergedItems;
+            weights = mergedWeights;
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        sortedItems = items;
+        cumulativeWeights = weights;
+    }
+}
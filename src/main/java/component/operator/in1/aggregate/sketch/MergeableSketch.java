@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.sketch;
+
+/**
+ * A summary of a set of values that can absorb another summary of the same
+ * type, so that the summary of a window can be computed from the summaries of
+ * its panes.
+ *
+ * @param <S> The type of the sketch.
+ */
+public interface MergeableSketch<S extends MergeableSketch<S>> {
+
+    /**
+     * Add the contents of another sketch to this sketch. The other sketch is not
+     * modified.
+     *
+     * @param other The sketch to merge into this one.
+     */
+    void merge(S other);
+}
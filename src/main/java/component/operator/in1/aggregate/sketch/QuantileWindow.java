@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.sketch;
+
+import common.tuple.RichTuple;
+import java.io.Serializable;
+
+/**
+ * {@link SketchWindow} that estimates the quantiles (e.g., median, p99) of a
+ * value of the tuples in a window with a {@link KllSketch}.
+ *
+ * <pre>
+ * query.addTimeAggregateOperator("latency", 60_000, 60_000,
+ *         new QuantileWindow&lt;Request, Stats&gt;(60_000, KllSketch.DEFAULT_K, t -&gt; t.latency,
+ *                 (start, key, kll) -&gt; new Stats(start, key, kll.quantile(0.5), kll.quantile(0.99))));
+ * </pre>
+ *
+ * @param <IN>  The type of the input tuples.
+ * @param <OUT> The type of the output tuples.
+ */
+public class QuantileWindow<IN extends RichTuple, OUT extends RichTuple> extends SketchWindow<IN, OUT, KllSketch> {
+
+    private final int k;
+    private final ValueFunction<IN> valueFunction;
+    private final SketchResultFunction<KllSketch, OUT> resultFunction;
+
+    /**
+     * Construct a new window.
+     *
+     * @param paneSize       The size of the panes, see {@link SketchWindow}.
+     * @param k              The accuracy parameter of the {@link KllSketch}
+     *                       sketches.
+     * @param valueFunction  Function returning the value of a tuple.
+     * @param resultFunction Function that produces the output tuple of a window.
+     */
+    public QuantileWindow(long paneSize, int k, ValueFunction<IN> valueFunction,
+            SketchResultFunction<KllSketch, OUT> resultFunction) {
+        super(paneSize);
+        this.k = k;
+        this.valueFunction = valueFunction;
+        this.resultFunction = resultFunction;
+    }
+
+    @Override
+    public QuantileWindow<IN, OUT> factory() {
+        return new QuantileWindow<>(paneSize, k, valueFunction, resultFunction);
+    }
+
+    @Override
+    protected KllSketch newSketch() {
+        return new KllSketch(k);
+    }
+
+    @Override
+    protected void update(KllSketch sketch, IN t) {
+        sketch.add(valueFunction.value(t));
+    }
+
+    @Override
+    protected OUT getResult(long windowStart, KllSketch sketch) {
+        return resultFunction.apply(windowStart, key, sketch);
+    }
+
+    /**
+     * Function returning the value of a tuple whose quantiles are estimated.
+     *
+     * @param <IN> The type of the input tuples.
+     */
+    @FunctionalInterface
+    public interface ValueFunction<IN> extends Serializable {
+        double value(IN t);
+    }
+}
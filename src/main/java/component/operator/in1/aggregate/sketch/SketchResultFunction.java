@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.sketch;
+
+import java.io.Serializable;
+
+/**
+ * Function that converts the sketch of a window to the output tuple of a
+ * {@link SketchWindow}.
+ *
+ * @param <S>   The type of the sketch.
+ * @param <OUT> The type of the output tuples.
+ */
+@FunctionalInterface
+public interface SketchResultFunction<S, OUT> extends Serializable {
+
+    /**
+     * Produce the output tuple of a window.
+     *
+     * @param windowStart The start timestamp of the window.
+     * @param key         The key of the window.
+     * @param sketch      The sketch of all the tuples in the window. Must not be
+     *                    modified.
+     * @return The output tuple.
+     */
+    OUT apply(long windowStart, String key, S sketch);
+}
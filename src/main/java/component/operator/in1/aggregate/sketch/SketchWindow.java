@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.sketch;
+
+import common.tuple.RichTuple;
+import component.operator.in1.aggregate.BaseTimeWindowAddSlide;
+import java.util.ArrayDeque;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Base {@link component.operator.in1.aggregate.TimeWindowAddSlide} for
+ * aggregates that are computed with a {@link MergeableSketch}. Instead of
+ * keeping the tuples of the window, the window keeps one sketch per pane of
+ * {@code paneSize} time units. Sliding the window only drops the sketches of
+ * the expired panes and the result is computed by merging the sketches of the
+ * remaining panes, so overlapping sliding windows share the same sketches.
+ * <p>
+ * The pane size must divide both the window size and the window slide of the
+ * aggregate (their greatest common divisor is the largest valid choice). For
+ * tumbling windows, the pane size can be equal to the window size.
+ *
+ * @param <IN>  The type of the input tuples.
+ * @param <OUT> The type of the output tuples.
+ * @param <S>   The type of the sketch.
+ */
+public abstract class SketchWindow<IN extends RichTuple, OUT extends RichTuple, S extends MergeableSketch<S>>
+        extends BaseTimeWindowAddSlide<IN, OUT> {
+
+    protected final long paneSize;
+    private final ArrayDeque<Pane<S>> panes = new ArrayDeque<>();
+    private long startTimestamp;
+
+    protected SketchWindow(long paneSize) {
+        Validate.isTrue(paneSize > 0, "paneSize must be positive");
+        this.paneSize = paneSize;
+    }
+
+    /**
+     * @return A new, empty sketch.
+     */
+    protected abstract S newSketch();
+
+    /**
+     * Add the value(s) of a tuple to a sketch.
+     *
+     * @param sketch The sketch of the pane of the tuple.
+     * @param t      The tuple.
+     */
+    protected abstract void update(S sketch, IN t);
+
+    /**
+     * Produce the output tuple from the sketch of the whole window. The sketch
+     * must not be modified.
+     *
+     * @param windowStart The start timestamp of the window.
+     * @param sketch      The sketch of the window.
+     * @return The output tuple.
+     */
+    protected abstract OUT getResult(long windowStart, S sketch);
+
+    @Override
+    public void add(IN t) {
+        final long paneStart = t.getTimestamp() - Math.floorMod(t.getTimestamp(), paneSize);
+        Pane<S> pane = panes.peekLast();
+        if (pane == null || pane.start != paneStart) {
+            pane = new Pane<>(paneStart, newSketch());
+            panes.addLast(pane);
+        }
+        update(pane.sketch, t);
+    }
+
+    @Override
+    public OUT getAggregatedResult() {
+        if (panes.size() == 1) {
+            return getResult(startTimestamp, panes.peekFirst().sketch);
+        }
+        S merged = newSketch();
+        for (Pane<S> pane : panes) {
+            merged.merge(pane.sketch);
+        }
+        return getResult(startTimestamp, merged);
+    }
+
+    @Override
+    public void slideTo(long startTimestamp) {
+        this.startTimestamp = startTimestamp;
+        while (!panes.isEmpty() && panes.peekFirst().start < startTimestamp) {
+            panes.pollFirst();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return panes.isEmpty();
+    }
+
+    private static final class Pane<S> {
+        private final long start;
+        private final S sketch;
+
+        private Pane(long start, S sketch) {
+            this.start = start;
+            this.sketch = sketch;
+        }
+    }
+}
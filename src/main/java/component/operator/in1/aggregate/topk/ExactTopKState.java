@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.topk;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exact {@link TopKState}. Keeps the per-key weights of every pane and
+ * incrementally maintains the totals of the current window: tuples are added
+ * to the totals when they arrive and the weights of a pane are subtracted when
+ * it expires.
+ */
+final class ExactTopKState extends TopKState {
+
+    private final ArrayDeque<Pane> panes = new ArrayDeque<>();
+    private final Map<String, Counter> totals = new HashMap<>();
+
+    @Override
+    void add(long paneStart, String key, double weight) {
+        Pane pane = panes.peekLast();
+        if (pane == null || pane.start != paneStart) {
+            pane = new Pane(paneStart);
+            panes.addLast(pane);
+        }
+        pane.counters.computeIfAbsent(key, k -> new Counter()).add(weight, 1);
+        totals.computeIfAbsent(key, k -> new Counter()).add(weight, 1);
+    }
+
+    @Override
+    void expireBefore(long timestamp) {
+        while (!panes.isEmpty() && panes.peekFirst().start < timestamp) {
+            Pane expired = panes.pollFirst();
+            for (Map.Entry<String, Counter> entry : expired.counters.entrySet()) {
+                Counter total = totals.get(entry.getKey());
+                total.add(-entry.getValue().value, -entry.getValue().tuples);
+                if (total.tuples == 0) {
+                    totals.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    @Override
+    boolean isEmpty() {
+        return panes.isEmpty();
+    }
+
+    @Override
+    List<TopKEntry> topK(int k) {
+        Selector selector = new Selector(k);
+        for (Map.Entry<String, Counter> entry : totals.entrySet()) {
+            selector.offer(entry.getKey(), entry.getValue().value, 0);
+        }
+        return selector.result();
+    }
+
+    private static final class Pane {
+        private final long start;
+        private final Map<String, Counter> counters = new HashMap<>();
+
+        private Pane(long start) {
+            this.start = start;
+        }
+    }
+
+    private static final class Counter {
+        private double value;
+        private long tuples;
+
+        private void add(double value, long tuples) {
+            this.value += value;
+            this.tuples += tuples;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.topk;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Space-Saving summary (Metwally et al.) with a fixed number of counters,
+ * stored in an indexed min-heap so that both updates and evictions take
+ * logarithmic time. Each counter overestimates the weight of its key by at most
+ * its error.
+ */
+final class SpaceSavingSummary {
+
+    private final int capacity;
+    private final String[] keys;
+    private final double[] values;
+    private final double[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    SpaceSavingSummary(int capacity) {
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.values = new double[capacity];
+        this.errors = new double[capacity];
+        this.positions = new HashMap<>(2 * capacity);
+    }
+
+    void add(String key, double weight) {
+        add(key, weight, 0);
+    }
+
+    /**
+     * Add all the counters of this summary to another summary.
+     */
+    void mergeInto(SpaceSavingSummary other) {
+        for (int i = 0; i < size; i++) {
+            other.add(keys[i], values[i], errors[i]);
+        }
+    }
+
+    void offerAll(TopKState.Selector selector) {
+        for (int i = 0; i < size; i++) {
+            selector.offer(keys[i], values[i], errors[i]);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void add(String key, double weight, double error) {
+        Validate.isTrue(weight >= 0, "Negative weights are not supported: %f", weight);
+        Integer position = positions.get(key);
+        if (position != null) {
+            values[position] += weight;
+            errors[position] += error;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            set(size, key, weight, error);
+            siftUp(size);
+            size++;
+            return;
+        }
+        // Replace the key with the minimum value, inheriting its value as error
+        double minimum = values[0];
+        positions.remove(keys[0]);
+        set(0, key, minimum + weight, minimum + error);
+        siftDown(0);
+    }
+
+    private void set(int position, String key, double value, double error) {
+        keys[position] = key;
+        values[position] = value;
+        errors[position] = error;
+        positions.put(key, position);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (values[parent] <= values[position]) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && values[left] < values[smallest]) {
+                smallest = left;
+            }
+            if (right < size && values[right] < values[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String key = keys[i];
+        double value = values[i];
+        double error = errors[i];
+        keys[i] = keys[j];
+        values[i] = values[j];
+        errors[i] = errors[j];
+        keys[j] = key;
+        values[j] = value;
+        errors[j] = error;
+        positions.put(keys[i], i);
+        positions.put(keys[j], j);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.topk;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Approximate {@link TopKState} that keeps one fixed-size
+ * {@link SpaceSavingSummary} per pane. The summaries of the panes of a window
+ * are merged when the window produces its result, so the memory used only
+ * depends on the number of panes and the capacity of the summaries, not on
+ * the number of distinct keys.
+ */
+final class SpaceSavingTopKState extends TopKState {
+
+    private final int capacity;
+    private final ArrayDeque<Pane> panes = new ArrayDeque<>();
+
+    SpaceSavingTopKState(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    void add(long paneStart, String key, double weight) {
+        Pane pane = panes.peekLast();
+        if (pane == null || pane.start != paneStart) {
+            pane = new Pane(paneStart, new SpaceSavingSummary(capacity));
+            panes.addLast(pane);
+        }
+        pane.summary.add(key, weight);
+    }
+
+    @Override
+    void expireBefore(long timestamp) {
+        while (!panes.isEmpty() && panes.peekFirst().start < timestamp) {
+            panes.pollFirst();
+        }
+    }
+
+    @Override
+    boolean isEmpty() {
+        return panes.isEmpty();
+    }
+
+    @Override
+    List<TopKEntry> topK(int k) {
+        Selector selector = new Selector(k);
+        if (panes.size() == 1) {
+            panes.peekFirst().summary.offerAll(selector);
+            return selector.result();
+        }
+        SpaceSavingSummary merged = new SpaceSavingSummary(capacity);
+        for (Pane pane : panes) {
+            pane.summary.mergeInto(merged);
+        }
+        merged.offerAll(selector);
+        return selector.result();
+    }
+
+    private static final class Pane {
+        private final long start;
+        private final SpaceSavingSummary summary;
+
+        private Pane(long start, SpaceSavingSummary summary) {
+            this.start = start;
+            this.summary = summary;
+        }
+    }
+}
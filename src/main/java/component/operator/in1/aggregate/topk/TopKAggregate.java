@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.topk;
+
+import common.tuple.RichTuple;
+import component.operator.in1.BaseOperator1In;
+import component.operator.in1.aggregate.BaseKeyExtractor;
+import component.operator.in1.aggregate.KeyExtractor;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Sliding time-window operator that reports the {@code K} keys with the
+ * highest aggregated weight in each window (heavy hitters). Windows of size
+ * {@code WS} start every {@code WA} time units; each window is stored as a
+ * sequence of panes of size {@code gcd(WS, WA)} that are shared by all the
+ * windows they belong to, so every tuple is processed exactly once and a
+ * slide only drops the panes that expired.
+ * <p>
+ * In exact mode, the per-key totals of the current window are maintained
+ * incrementally and the top-K keys are selected with a bounded heap. In
+ * approximate mode, each pane keeps a fixed-size Space-Saving summary, which
+ * bounds the memory regardless of the number of distinct keys; reported values
+ * are upper bounds of the actual ones, with the maximum overestimation given
+ * by {@link TopKEntry#getError()}.
+ * <p>
+ * Tuples are expected in increasing timestamp order and the keys are taken
+ * from the tuples using the registered {@link KeyExtractor}.
+ *
+ * @param <IN>  The type of input tuples.
+ * @param <OUT> The type of output tuples.
+ */
+public class TopKAggregate<IN extends RichTuple, OUT> extends BaseOperator1In<IN, OUT> {
+
+    private final long WS;
+    private final long WA;
+    private final long paneSize;
+    private final int k;
+    private final TopKWeightFunction<IN> weightFunction;
+    private final TopKResultFunction<OUT> resultFunction;
+    private final TopKState state;
+    private KeyExtractor keyExtractor;
+    private long latestTimestamp = Long.MIN_VALUE;
+    private long nextWindowStart = Long.MIN_VALUE;
+
+    /**
+     * Construct an operator that computes the exact top-K keys of each window.
+     */
+    public TopKAggregate(String id, long windowSize, long windowSlide, int k, TopKWeightFunction<IN> weightFunction,
+            TopKResultFunction<OUT> resultFunction) {
+        this(id, windowSize, windowSlide, k, weightFunction, resultFunction, new ExactTopKState());
+    }
+
+    /**
+     * Construct an operator that computes approximate top-K keys of each window,
+     * using Space-Saving summaries with the given number of counters per pane.
+     * Larger capacities give more accurate results; the capacity must be at least
+     * {@code k}.
+     */
+    public TopKAggregate(String id, long windowSize, long windowSlide, int k, int capacity,
+            TopKWeightFunction<IN> weightFunction, TopKResultFunction<OUT> resultFunction) {
+        this(id, windowSize, windowSlide, k, weightFunction, resultFunction, new SpaceSavingTopKState(capacity));
+        Validate.isTrue(capacity >= k, "capacity must be at least k");
+    }
+
+    private TopKAggregate(String id, long windowSize, long windowSlide, int k,
+            TopKWeightFunction<IN> weightFunction, TopKResultFunction<OUT> resultFunction, TopKState state) {
+        super(id);
+        Validate.isTrue(windowSlide > 0, "windowSlide must be positive");
+        Validate.isTrue(k > 0, "k must be positive");
+        Validate.notNull(weightFunction, "weightFunction");
+        Validate.notNull(resultFunction, "resultFunction");
+        Validate.isTrue(windowSlide <= windowSize, "windowSlide must not be larger than windowSize");
+        this.WS = windowSize;
+        this.WA = windowSlide;
+        this.paneSize = gcd(windowSize, windowSlide);
+        this.k = k;
+        this.weightFunction = weightFunction;
+        this.resultFunction = resultFunction;
+        this.state = state;
+        this.keyExtractor = new BaseKeyExtractor();
+    }
+
+    @Override
+    public List<OUT> processTupleIn1(IN t) {
+        final long ts = t.getTimestamp();
+        if (ts < latestTimestamp) {
+            throw new RuntimeException("Input tuple's timestamp decreased!");
+        }
+        latestTimestamp = ts;
+
+        List<OUT> result = Collections.emptyList();
+        if (state.isEmpty()) {
+            nextWindowStart = Math.max(nextWindowStart, earliestWindowStart(ts));
+        }
+        // Produce the results of all the windows that ended before this tuple
+        while (nextWindowStart + WS <= ts) {
+            OUT outT = resultFunction.apply(nextWindowStart, state.topK(k));
+            if (outT != null) {
+                if (result.isEmpty()) {
+                    result = new LinkedList<>();
+                }
+                result.add(outT);
+            }
+            nextWindowStart += WA;
+            state.expireBefore(nextWindowStart);
+            if (state.isEmpty()) {
+                // Skip the windows that would have no tuples at all
+                nextWindowStart = Math.max(nextWindowStart, earliestWindowStart(ts));
+            }
+        }
+
+        state.add(ts - Math.floorMod(ts, paneSize), keyExtractor.getKey(t), weightFunction.weight(t));
+        return result;
+    }
+
+    /**
+     * Start of the earliest window that contains the given timestamp.
+     */
+    private long earliestWindowStart(long ts) {
+        return Math.max((Math.floorDiv(ts - WS, WA) + 1) * WA, 0);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long tmp = a % b;
+            a = b;
+            b = tmp;
+        }
+        return a;
+    }
+
+    public void registerKeyExtractor(KeyExtractor k) {
+        this.keyExtractor = k;
+    }
+
+    @Override
+    public void enable() {
+        weightFunction.enable();
+        resultFunction.enable();
+        super.enable();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+        weightFunction.disable();
+        resultFunction.disable();
+    }
+
+    @Override
+    public boolean canRun() {
+        return weightFunction.canRun() && resultFunction.canRun() && super.canRun();
+    }
+}
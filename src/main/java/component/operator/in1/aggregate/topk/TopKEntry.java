@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.topk;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * One of the highest ranked keys of a window, as reported by a
+ * {@link TopKAggregate}.
+ */
+public final class TopKEntry {
+
+    private final String key;
+    private final double value;
+    private final double error;
+
+    public TopKEntry(String key, double value, double error) {
+        this.key = key;
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @return The key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The aggregated weight of the key in the window. In approximate mode,
+     *         this is an upper bound of the actual value.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return The maximum overestimation of {@link #getValue()}. Always {@code 0}
+     *         for exact results.
+     */
+    public double getError() {
+        return error;
+    }
+
+    /**
+     * Order of entries in the results: descending value and then ascending key.
+     */
+    static int compare(String key1, double value1, String key2, double value2) {
+        int valueComparison = Double.compare(value2, value1);
+        return valueComparison != 0 ? valueComparison : key1.compareTo(key2);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this).append("key", key).append("value", value).append("error", error).toString();
+    }
+}
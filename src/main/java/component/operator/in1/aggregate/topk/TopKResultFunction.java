@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.topk;
+
+import component.ComponentFunction;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Function that converts the top-K keys of a window to an output tuple of a
+ * {@link TopKAggregate}.
+ *
+ * @param <OUT> The type of the output tuples.
+ */
+@FunctionalInterface
+public interface TopKResultFunction<OUT> extends ComponentFunction, Serializable {
+
+    /**
+     * Produce the output tuple for a window.
+     *
+     * @param windowStart The start timestamp of the window.
+     * @param topK        The (at most K) highest ranked keys of the window, in
+     *                    descending order of their value.
+     * @return The output tuple, or {@code null} if no output should be produced.
+     */
+    OUT apply(long windowStart, List<TopKEntry> topK);
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.topk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The per-pane state of a {@link TopKAggregate}. Panes are added in increasing
+ * order of their start timestamp and expire in the same order.
+ */
+abstract class TopKState {
+
+    /**
+     * Add the weight of a key to the pane starting at the given timestamp.
+     */
+    abstract void add(long paneStart, String key, double weight);
+
+    /**
+     * Drop all the panes that start before the given timestamp.
+     */
+    abstract void expireBefore(long timestamp);
+
+    /**
+     * @return {@code true} if there are no panes in the state.
+     */
+    abstract boolean isEmpty();
+
+    /**
+     * @return The {@code k} highest ranked keys of all the panes in the state, in
+     *         descending order.
+     */
+    abstract List<TopKEntry> topK(int k);
+
+    /**
+     * Bounded min-heap used to select the top-K entries without sorting all the
+     * keys.
+     */
+    static final class Selector {
+        private final int k;
+        private final PriorityQueue<TopKEntry> heap;
+
+        Selector(int k) {
+            this.k = k;
+            // The head of the heap is the lowest ranked of the selected entries
+            this.heap = new PriorityQueue<>(k,
+                    (e1, e2) -> TopKEntry.compare(e2.getKey(), e2.getValue(), e1.getKey(), e1.getValue()));
+        }
+
+        void offer(String key, double value, double error) {
+            if (heap.size() < k) {
+                heap.add(new TopKEntry(key, value, error));
+                return;
+            }
+            TopKEntry lowest = heap.peek();
+            if (TopKEntry.compare(key, value, lowest.getKey(), lowest.getValue()) < 0) {
+                heap.poll();
+                heap.add(new TopKEntry(key, value, error));
+            }
+        }
+
+        List<TopKEntry> result() {
+            List<TopKEntry> result = new ArrayList<>(heap);
+            Collections.sort(result, (e1, e2) -> TopKEntry.compare(e1.getKey(), e1.getValue(), e2.getKey(),
+                    e2.getValue()));
+            return result;
+        }
+    }
+}
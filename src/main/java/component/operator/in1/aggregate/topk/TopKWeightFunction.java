@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.aggregate.topk;
+
+import component.ComponentFunction;
+import java.io.Serializable;
+
+/**
+ * Function that gives the contribution of a tuple to the rank of its key in a
+ * {@link TopKAggregate}. Use a constant {@code 1} to rank keys by their number
+ * of tuples, or an attribute of the tuple to rank them by the sum of that
+ * attribute. Weights must not be negative.
+ *
+ * @param <IN> The type of the input tuples.
+ */
+@FunctionalInterface
+public interface TopKWeightFunction<IN> extends ComponentFunction, Serializable {
+
+    /**
+     * Get the weight of the given tuple.
+     *
+     * @param tuple The input tuple.
+     * @return The (non-negative) weight of the tuple.
+     */
+    double weight(IN tuple);
+}
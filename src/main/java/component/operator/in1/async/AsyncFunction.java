@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.async;
+
+import component.ComponentFunction;
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Function that starts an asynchronous computation for a tuple, e.g., a request
+ * to an external service, without blocking the calling thread.
+ *
+ * @param <IN>  The type of the input tuples.
+ * @param <OUT> The type of the output tuples.
+ */
+@FunctionalInterface
+public interface AsyncFunction<IN, OUT> extends ComponentFunction, Serializable {
+
+    /**
+     * Start the computation for a tuple.
+     *
+     * @param tuple The input tuple.
+     * @return A future that completes with the output tuple, or with {@code null}
+     *         if no output should be produced.
+     */
+    CompletableFuture<OUT> apply(IN tuple);
+}
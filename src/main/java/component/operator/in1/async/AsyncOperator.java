@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.async;
+
+import component.ComponentType;
+import component.operator.AbstractOperator;
+import component.operator.in1.Operator1In;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import stream.Stream;
+
+/**
+ * Operator that applies an {@link AsyncFunction} to its input tuples and keeps
+ * up to {@code capacity} computations in flight, so that the latency of
+ * external calls is overlapped instead of blocking the operator for each
+ * tuple. No input tuple is read while the maximum number of computations are
+ * in flight, which propagates backpressure to the upstream operators.
+ * <p>
+ * Results are emitted either in the order of the input tuples
+ * ({@link OutputMode#ORDERED}) or as soon as they are available
+ * ({@link OutputMode#UNORDERED}). Computations that fail or do not complete
+ * within the timeout produce no result; timed out futures are cancelled.
+ *
+ * @param <IN>  The type of the input tuples.
+ * @param <OUT> The type of the output tuples.
+ */
+public class AsyncOperator<IN, OUT> extends AbstractOperator<IN, OUT> implements Operator1In<IN, OUT> {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final long MAX_IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The order in which the results are emitted.
+     */
+    public enum OutputMode {
+        /**
+         * Results are emitted in the order of the input tuples.
+         */
+        ORDERED,
+        /**
+         * Results are emitted in the order in which they complete.
+         */
+        UNORDERED
+    }
+
+    private final AsyncFunction<IN, OUT> function;
+    private final int capacity;
+    private final long timeoutNanos;
+    private final OutputMode mode;
+    // In-flight computations, in input order, removed as soon as they finish
+    private final LinkedHashSet<Request<OUT>> requests = new LinkedHashSet<>();
+    // Completed computations, in completion order (only used when unordered)
+    private final Queue<Request<OUT>> completed = new ConcurrentLinkedQueue<>();
+    private volatile Thread waitingThread;
+    private boolean inputFinished;
+    private long timeouts;
+    private long failures;
+
+    /**
+     * Construct.
+     *
+     * @param id            The unique ID of the operator.
+     * @param function      The asynchronous function.
+     * @param capacity      The maximum number of computations in flight.
+     * @param timeoutMillis The maximum duration of a computation, in
+     *                      milliseconds, or {@code 0} for no timeout.
+     * @param mode          The order of the results.
+     */
+    public AsyncOperator(String id, AsyncFunction<IN, OUT> function, int capacity, long timeoutMillis,
+            OutputMode mode) {
+        super(id, ComponentType.OPERATOR);
+        Validate.notNull(function, "function");
+        Validate.notNull(mode, "mode");
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+        Validate.isTrue(timeoutMillis >= 0, "timeoutMillis must not be negative");
+        this.function = function;
+        this.capacity = capacity;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.mode = mode;
+    }
+
+    @Override
+    protected void process() {
+        if (isFlushed()) {
+            return;
+        }
+        Stream<IN> input = getInput();
+        Stream<OUT> output = getOutput();
+
+        boolean progress = emitCompleted(output);
+        expireTimedOut();
+        final int inFlight = requests.size();
+
+        // Do not wait for input while results are pending
+        if (!inputFinished && inFlight < capacity && (inFlight == 0 || input.size() > 0)) {
+            IN inTuple = input.getNextTuple(getIndex());
+            if (isStreamFinished(inTuple, input)) {
+                inputFinished = true;
+            } else if (inTuple != null) {
+                increaseTuplesRead();
+                submit(inTuple);
+                progress = true;
+            }
+        }
+
+        if (inputFinished && requests.isEmpty()) {
+            flush();
+            return;
+        }
+        if (!progress && !requests.isEmpty()) {
+            awaitCompletion();
+        }
+    }
+
+    /**
+     * Start the computation for a tuple. Results are produced by
+     * {@link #process()}, so this always returns an empty list.
+     */
+    @Override
+    public List<OUT> processTupleIn1(IN tuple) {
+        submit(tuple);
+        return Collections.emptyList();
+    }
+
+    private void submit(IN tuple) {
+        final Request<OUT> request = new Request<>(function.apply(tuple),
+                timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : Long.MAX_VALUE);
+        requests.add(request);
+        request.future.whenComplete((result, exception) -> {
+            if (mode == OutputMode.UNORDERED) {
+                completed.offer(request);
+            }
+            Thread waiting = waitingThread;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
+        });
+    }
+
+    private boolean emitCompleted(Stream<OUT> output) {
+        boolean emitted = false;
+        if (mode == OutputMode.ORDERED) {
+            while (!requests.isEmpty() && oldest().future.isDone()) {
+                emitted |= finish(oldest(), output);
+            }
+        } else {
+            Request<OUT> request;
+            while ((request = completed.poll()) != null) {
+                emitted |= finish(request, output);
+            }
+        }
+        return emitted;
+    }
+
+    private boolean finish(Request<OUT> request, Stream<OUT> output) {
+        if (request.finished) {
+            // Already handled as a timeout
+            return false;
+        }
+        request.finished = true;
+        requests.remove(request);
+        final OUT result;
+        try {
+            result = request.future.join();
+        } catch (RuntimeException e) {
+            failures++;
+            LOG.debug("{} asynchronous computation failed: {}", getId(), e.getMessage());
+            return true;
+        }
+        if (result != null) {
+            increaseTuplesWritten();
+            output.addTuple(result, getIndex());
+        }
+        return true;
+    }
+
+    private void expireTimedOut() {
+        if (timeoutNanos == 0) {
+            return;
+        }
+        // Deadlines follow the input order, so only the oldest requests can expire
+        final long now = System.nanoTime();
+        while (!requests.isEmpty() && oldest().deadline <= now) {
+            Request<OUT> request = oldest();
+            if (request.future.isDone()) {
+                // Completed, but not emitted yet
+                return;
+            }
+            requests.remove(request);
+            request.finished = true;
+            timeouts++;
+            request.future.cancel(false);
+        }
+    }
+
+    private void awaitCompletion() {
+        waitingThread = Thread.currentThread();
+        if (!hasCompleted()) {
+            LockSupport.parkNanos(this, MAX_IDLE_WAIT_NANOS);
+        }
+        waitingThread = null;
+    }
+
+    private boolean hasCompleted() {
+        return mode == OutputMode.ORDERED ? oldest().future.isDone() : !completed.isEmpty();
+    }
+
+    private Request<OUT> oldest() {
+        return requests.iterator().next();
+    }
+
+    /**
+     * @return The number of computations that are currently in flight.
+     */
+    public int inFlight() {
+        return requests.size();
+    }
+
+    /**
+     * @return The number of computations that did not complete in time.
+     */
+    public long timeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return The number of computations that completed exceptionally.
+     */
+    public long failures() {
+        return failures;
+    }
+
+    @Override
+    public void enable() {
+        function.enable();
+        super.enable();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+        function.disable();
+    }
+
+    @Override
+    public boolean canRun() {
+        final int inFlight = requests.size();
+        return (inFlight > 0 || (getInput().size() > 0 && inFlight < capacity))
+                && getOutput().remainingCapacity() > 0 && function.canRun();
+    }
+
+    private static final class Request<OUT> {
+        private final CompletableFuture<OUT> future;
+        private final long deadline;
+        private boolean finished;
+
+        private Request(CompletableFuture<OUT> future, long deadline) {
+            this.future = future;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.cep;
+
+import component.operator.in1.filter.FilterFunction;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Immutable description of a sequence of events to be detected by a
+ * {@link PatternOperator}, e.g., three login failures followed by a success
+ * within one minute:
+ *
+ * <pre>
+ * Pattern.&lt;Login&gt;begin(l -&gt; !l.success).times(3).followedBy(l -&gt; l.success).within(60_000);
+ * </pre>
+ *
+ * Each step of the pattern is a {@link FilterFunction} that an event must
+ * satisfy. With {@link #next(FilterFunction)} the event must directly follow
+ * the previous matched event of the same key, while with
+ * {@link #followedBy(FilterFunction)} non-matching events in between are
+ * skipped.
+ *
+ * @param <T> The type of the events.
+ */
+public final class Pattern<T> implements Serializable {
+
+    private final List<FilterFunction<T>> predicates;
+    private final List<Boolean> strict;
+    private final long within;
+
+    private Pattern(List<FilterFunction<T>> predicates, List<Boolean> strict, long within) {
+        this.predicates = Collections.unmodifiableList(predicates);
+        this.strict = Collections.unmodifiableList(strict);
+        this.within = within;
+    }
+
+    /**
+     * Start a pattern with an event that satisfies the given predicate.
+     *
+     * @param predicate The predicate of the first event.
+     * @return The pattern.
+     */
+    public static <T> Pattern<T> begin(FilterFunction<T> predicate) {
+        return new Pattern<T>(new ArrayList<>(), new ArrayList<>(), Long.MAX_VALUE).append(predicate, false);
+    }
+
+    /**
+     * Extend the pattern with an event that satisfies the given predicate and
+     * directly follows the previous event (strict contiguity).
+     *
+     * @param predicate The predicate of the next event.
+     * @return The extended pattern.
+     */
+    public Pattern<T> next(FilterFunction<T> predicate) {
+        return append(predicate, true);
+    }
+
+    /**
+     * Extend the pattern with an event that satisfies the given predicate and
+     * follows the previous event, possibly after other events (relaxed
+     * contiguity).
+     *
+     * @param predicate The predicate of the next event.
+     * @return The extended pattern.
+     */
+    public Pattern<T> followedBy(FilterFunction<T> predicate) {
+        return append(predicate, false);
+    }
+
+    /**
+     * Require the last step of the pattern to be matched by the given number of
+     * events in total. The repetitions have the same contiguity as the step
+     * itself.
+     *
+     * @param times The number of events, at least 1.
+     * @return The extended pattern.
+     */
+    public Pattern<T> times(int times) {
+        Validate.isTrue(times > 0, "times must be positive");
+        Pattern<T> result = this;
+        final int last = predicates.size() - 1;
+        for (int i = 1; i < times; i++) {
+            result = result.append(predicates.get(last), strict.get(last));
+        }
+        return result;
+    }
+
+    /**
+     * Require the first and last event of a match to be at most the given time
+     * apart, according to their timestamps.
+     *
+     * @param within The maximum duration of a match.
+     * @return The pattern with the time constraint.
+     */
+    public Pattern<T> within(long within) {
+        Validate.isTrue(within >= 0, "within must not be negative");
+        return new Pattern<>(new ArrayList<>(predicates), new ArrayList<>(strict), within);
+    }
+
+    private Pattern<T> append(FilterFunction<T> predicate, boolean isStrict) {
+        Validate.notNull(predicate, "predicate");
+        List<FilterFunction<T>> newPredicates = new ArrayList<>(predicates);
+        List<Boolean> newStrict = new ArrayList<>(strict);
+        newPredicates.add(predicate);
+        newStrict.add(isStrict);
+        return new Pattern<>(newPredicates, newStrict, within);
+    }
+
+    /**
+     * @return The predicates of the pattern, one per matched event.
+     */
+    List<FilterFunction<T>> predicates() {
+        return predicates;
+    }
+
+    /**
+     * @return For each event, whether it must directly follow the previous one.
+     */
+    List<Boolean> strict() {
+        return strict;
+    }
+
+    long within() {
+        return within;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.cep;
+
+import common.tuple.RichTuple;
+import component.operator.in1.BaseOperator1In;
+import component.operator.in1.aggregate.BaseKeyExtractor;
+import component.operator.in1.aggregate.KeyExtractor;
+import component.operator.in1.filter.FilterFunction;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Operator that detects the matches of a {@link Pattern} in the events of
+ * each key and converts them to output tuples with a
+ * {@link PatternSelectFunction}.
+ * <p>
+ * The pattern is compiled to a linear automaton with one state per step.
+ * Every event that satisfies the first step starts a new partial match (run),
+ * and runs advance with skip-till-next-match semantics: a run consumes the
+ * first event that satisfies its next step. Since all the runs in the same
+ * state wait for the same predicate, they are kept together in one queue per
+ * state and key; each predicate is evaluated once per event and state, and a
+ * run is only touched when it advances, is discarded or expires. The events
+ * of a run are stored as a chain of nodes, so advancing a run never copies
+ * its events.
+ * <p>
+ * Runs that started earlier are always in the same or a later state than
+ * runs that started later, so each queue is ordered by start time and expired
+ * runs are removed from the heads of the queues.
+ *
+ * @param <T>   The type of the events.
+ * @param <OUT> The type of the output tuples.
+ */
+public class PatternOperator<T extends RichTuple, OUT> extends BaseOperator1In<T, OUT> {
+
+    private final FilterFunction<T>[] predicates;
+    private final boolean[] strict;
+    private final long within;
+    private final PatternSelectFunction<T, OUT> selectFunction;
+    private final Map<String, ArrayDeque<Node<T>>[]> runs = new HashMap<>();
+    private KeyExtractor keyExtractor;
+    private long latestTimestamp = Long.MIN_VALUE;
+    private long lastSweepTimestamp = Long.MIN_VALUE;
+
+    @SuppressWarnings("unchecked")
+    public PatternOperator(String id, Pattern<T> pattern, PatternSelectFunction<T, OUT> selectFunction) {
+        super(id);
+        Validate.notNull(pattern, "pattern");
+        Validate.notNull(selectFunction, "selectFunction");
+        this.predicates = pattern.predicates().toArray(new FilterFunction[0]);
+        this.strict = new boolean[predicates.length];
+        for (int i = 0; i < strict.length; i++) {
+            strict[i] = pattern.strict().get(i);
+        }
+        this.within = pattern.within();
+        this.selectFunction = selectFunction;
+        this.keyExtractor = new BaseKeyExtractor();
+    }
+
+    @Override
+    public List<OUT> processTupleIn1(T t) {
+        final long ts = t.getTimestamp();
+        latestTimestamp = Math.max(latestTimestamp, ts);
+        sweepIdleKeys();
+
+        final String key = keyExtractor.getKey(t);
+        ArrayDeque<Node<T>>[] keyRuns = runs.get(key);
+        List<OUT> result = Collections.emptyList();
+
+        if (keyRuns != null) {
+            prune(keyRuns, ts);
+            // From the last to the first state, so that each run advances at most once
+            for (int state = keyRuns.length - 1; state >= 0; state--) {
+                ArrayDeque<Node<T>> waiting = keyRuns[state];
+                if (waiting.isEmpty()) {
+                    continue;
+                }
+                final int next = state + 1;
+                if (predicates[next].test(t)) {
+                    if (next == predicates.length - 1) {
+                        for (Node<T> run : waiting) {
+                            result = emit(result, key, new Node<>(t, run));
+                        }
+                    } else {
+                        for (Node<T> run : waiting) {
+                            keyRuns[next].addLast(new Node<>(t, run));
+                        }
+                    }
+                    waiting.clear();
+                } else if (strict[next]) {
+                    waiting.clear();
+                }
+            }
+        }
+
+        if (predicates[0].test(t)) {
+            if (predicates.length == 1) {
+                result = emit(result, key, new Node<>(t, null));
+            } else {
+                if (keyRuns == null) {
+                    keyRuns = newRuns();
+                    runs.put(key, keyRuns);
+                }
+                keyRuns[0].addLast(new Node<>(t, null));
+            }
+        }
+
+        if (keyRuns != null && isEmpty(keyRuns)) {
+            runs.remove(key);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of partial matches of all keys.
+     *
+     * @return The number of partial matches.
+     */
+    public long activeRuns() {
+        long active = 0;
+        for (ArrayDeque<Node<T>>[] keyRuns : runs.values()) {
+            for (ArrayDeque<Node<T>> waiting : keyRuns) {
+                active += waiting.size();
+            }
+        }
+        return active;
+    }
+
+    public void registerKeyExtractor(KeyExtractor k) {
+        this.keyExtractor = k;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OUT> emit(List<OUT> result, String key, Node<T> last) {
+        T[] events = (T[]) new RichTuple[predicates.length];
+        Node<T> node = last;
+        for (int i = events.length - 1; i >= 0; i--) {
+            events[i] = node.event;
+            node = node.previous;
+        }
+        OUT outT = selectFunction.select(key, Arrays.asList(events));
+        if (outT == null) {
+            return result;
+        }
+        if (result.isEmpty()) {
+            result = new LinkedList<>();
+        }
+        result.add(outT);
+        return result;
+    }
+
+    private void prune(ArrayDeque<Node<T>>[] keyRuns, long ts) {
+        if (within == Long.MAX_VALUE) {
+            return;
+        }
+        for (ArrayDeque<Node<T>> waiting : keyRuns) {
+            while (!waiting.isEmpty() && ts - waiting.peekFirst().start > within) {
+                waiting.pollFirst();
+            }
+        }
+    }
+
+    /**
+     * Drop the expired runs of keys that have not received events for a while.
+     * Done at most once every {@code within} time units, so its cost is amortized
+     * over all the events of that period.
+     */
+    private void sweepIdleKeys() {
+        if (within == Long.MAX_VALUE || latestTimestamp - lastSweepTimestamp <= within) {
+            return;
+        }
+        lastSweepTimestamp = latestTimestamp;
+        Iterator<ArrayDeque<Node<T>>[]> it = runs.values().iterator();
+        while (it.hasNext()) {
+            ArrayDeque<Node<T>>[] keyRuns = it.next();
+            prune(keyRuns, latestTimestamp);
+            if (isEmpty(keyRuns)) {
+                it.remove();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayDeque<Node<T>>[] newRuns() {
+        // The last state is final, so matches never wait there
+        ArrayDeque<Node<T>>[] keyRuns = new ArrayDeque[predicates.length - 1];
+        for (int i = 0; i < keyRuns.length; i++) {
+            keyRuns[i] = new ArrayDeque<>();
+        }
+        return keyRuns;
+    }
+
+    private static boolean isEmpty(ArrayDeque<?>[] keyRuns) {
+        for (ArrayDeque<?> waiting : keyRuns) {
+            if (!waiting.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void enable() {
+        for (FilterFunction<T> predicate : predicates) {
+            predicate.enable();
+        }
+        selectFunction.enable();
+        super.enable();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+        for (FilterFunction<T> predicate : predicates) {
+            predicate.disable();
+        }
+        selectFunction.disable();
+    }
+
+    @Override
+    public boolean canRun() {
+        for (FilterFunction<T> predicate : predicates) {
+            if (!predicate.canRun()) {
+                return false;
+            }
+        }
+        return selectFunction.canRun() && super.canRun();
+    }
+
+    /**
+     * An event of a (partial) match, linked to the previous event of the match.
+     */
+    private static final class Node<T extends RichTuple> {
+        private final T event;
+        private final Node<T> previous;
+        private final long start;
+
+        private Node(T event, Node<T> previous) {
+            this.event = event;
+            this.previous = previous;
+            this.start = previous == null ? event.getTimestamp() : previous.start;
+        }
+    }
+}
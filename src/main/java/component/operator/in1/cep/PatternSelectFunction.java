@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.cep;
+
+import component.ComponentFunction;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Function that converts a match of a {@link Pattern} to an output tuple of a
+ * {@link PatternOperator}.
+ *
+ * @param <T>   The type of the events.
+ * @param <OUT> The type of the output tuples.
+ */
+@FunctionalInterface
+public interface PatternSelectFunction<T, OUT> extends ComponentFunction, Serializable {
+
+    /**
+     * Produce the output tuple of a match.
+     *
+     * @param key    The key of the events of the match.
+     * @param events The matched events, one per step of the pattern, in order.
+     * @return The output tuple, or {@code null} if no output should be produced.
+     */
+    OUT select(String key, List<T> events);
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.dedup;
+
+import common.tuple.RichTuple;
+import common.util.collection.BloomFilter;
+import common.util.collection.LongHashSet;
+import component.operator.in1.BaseOperator1In;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Operator that forwards only the first tuple with each id, as returned by a
+ * {@link DeduplicationIdFunction}, and drops the duplicates that arrive within
+ * a time-to-live (TTL) from it. Time is either the timestamp of the tuples or
+ * the wall-clock time, see {@link TimeMode}.
+ * <p>
+ * The ids are stored in a ring of time buckets, each covering
+ * {@code TTL / buckets} time units. When time moves past a bucket, the bucket
+ * is cleared and reused as a whole, so memory is bounded by the number of ids
+ * seen in one TTL and expiring ids does not cost anything per id. An id is
+ * remembered for at least the TTL and at most one extra bucket.
+ * <p>
+ * In exact mode, buckets are primitive hash sets. In approximate mode, buckets
+ * are fixed-size Bloom filters: memory does not depend on the number of ids,
+ * but a tuple that is not a duplicate is dropped with a small probability.
+ *
+ * @param <T> The type of the tuples.
+ */
+public class DeduplicationOperator<T extends RichTuple> extends BaseOperator1In<T, T> {
+
+    public static final int DEFAULT_BUCKETS = 8;
+
+    /**
+     * The notion of time used to expire the ids.
+     */
+    public enum TimeMode {
+        /**
+         * The timestamp of the tuples. Time only moves forward, i.e., tuples with
+         * smaller timestamps than already seen do not expire any id.
+         */
+        EVENT_TIME,
+        /**
+         * The wall-clock time (in milliseconds) when the tuples are processed.
+         */
+        PROCESSING_TIME
+    }
+
+    private final DeduplicationIdFunction<T> idFunction;
+    private final TimeMode timeMode;
+    private final long bucketSize;
+    private final IdBucket[] ring;
+    private long currentBucket = Long.MIN_VALUE;
+
+    /**
+     * Construct an exact deduplication operator.
+     *
+     * @param id         The unique id of this operator.
+     * @param timeMode   The notion of time.
+     * @param ttl        The time that ids are remembered.
+     * @param buckets    The number of buckets the TTL is split into.
+     * @param idFunction The function that returns the id of each tuple.
+     */
+    public DeduplicationOperator(String id, TimeMode timeMode, long ttl, int buckets,
+            DeduplicationIdFunction<T> idFunction) {
+        this(id, timeMode, ttl, buckets, idFunction, ExactBucket::new);
+    }
+
+    /**
+     * Construct an approximate deduplication operator that uses Bloom filters.
+     *
+     * @param id                   The unique id of this operator.
+     * @param timeMode             The notion of time.
+     * @param ttl                  The time that ids are remembered.
+     * @param buckets              The number of buckets the TTL is split into.
+     * @param idFunction           The function that returns the id of each
+     *                             tuple.
+     * @param expectedIdsPerBucket The expected number of distinct ids in each
+     *                             bucket.
+     * @param falsePositiveRate    The probability of dropping a tuple that is not
+     *                             a duplicate, when buckets contain at most the
+     *                             expected number of ids.
+     */
+    public DeduplicationOperator(String id, TimeMode timeMode, long ttl, int buckets,
+            DeduplicationIdFunction<T> idFunction, long expectedIdsPerBucket, double falsePositiveRate) {
+        this(id, timeMode, ttl, buckets, idFunction, () -> new BloomBucket(expectedIdsPerBucket, falsePositiveRate));
+    }
+
+    private DeduplicationOperator(String id, TimeMode timeMode, long ttl, int buckets,
+            DeduplicationIdFunction<T> idFunction, Supplier<IdBucket> bucketSupplier) {
+        super(id);
+        Validate.notNull(timeMode, "timeMode");
+        Validate.notNull(idFunction, "idFunction");
+        Validate.isTrue(buckets > 0, "buckets must be positive");
+        Validate.isTrue(ttl >= buckets, "ttl must be at least equal to the number of buckets");
+        this.timeMode = timeMode;
+        this.idFunction = idFunction;
+        this.bucketSize = (ttl + buckets - 1) / buckets;
+        // One extra bucket, so that ids live for the whole TTL
+        this.ring = new IdBucket[buckets + 1];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = bucketSupplier.get();
+        }
+    }
+
+    @Override
+    public List<T> processTupleIn1(T tuple) {
+        final long time = timeMode == TimeMode.EVENT_TIME ? tuple.getTimestamp() : System.currentTimeMillis();
+        advanceTo(Math.floorDiv(time, bucketSize));
+        final long tupleId = idFunction.id(tuple);
+        for (IdBucket bucket : ring) {
+            if (bucket.contains(tupleId)) {
+                return Collections.emptyList();
+            }
+        }
+        ring[(int) Math.floorMod(currentBucket, (long) ring.length)].add(tupleId);
+        return Collections.singletonList(tuple);
+    }
+
+    private void advanceTo(long bucket) {
+        if (bucket <= currentBucket) {
+            return;
+        }
+        if (currentBucket == Long.MIN_VALUE || bucket - currentBucket >= ring.length) {
+            for (IdBucket b : ring) {
+                b.clear();
+            }
+        } else {
+            for (long b = currentBucket + 1; b <= bucket; b++) {
+                ring[(int) Math.floorMod(b, (long) ring.length)].clear();
+            }
+        }
+        currentBucket = bucket;
+    }
+
+    @Override
+    public void enable() {
+        idFunction.enable();
+        super.enable();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+        idFunction.disable();
+    }
+
+    @Override
+    public boolean canRun() {
+        return idFunction.canRun() && super.canRun();
+    }
+
+    private interface IdBucket {
+        boolean contains(long id);
+
+        void add(long id);
+
+        void clear();
+    }
+
+    private static final class ExactBucket implements IdBucket {
+        private final LongHashSet ids = new LongHashSet();
+
+        @Override
+        public boolean contains(long id) {
+            return ids.contains(id);
+        }
+
+        @Override
+        public void add(long id) {
+            ids.add(id);
+        }
+
+        @Override
+        public void clear() {
+            ids.clear();
+        }
+    }
+
+    private static final class BloomBucket implements IdBucket {
+        private final BloomFilter ids;
+        private boolean empty = true;
+
+        private BloomBucket(long expectedIds, double falsePositiveRate) {
+            this.ids = new BloomFilter(expectedIds, falsePositiveRate);
+        }
+
+        @Override
+        public boolean contains(long id) {
+            return !empty && ids.mightContain(id);
+        }
+
+        @Override
+        public void add(long id) {
+            ids.add(id);
+            empty = false;
+        }
+
+        @Override
+        public void clear() {
+            if (!empty) {
+                ids.clear();
+                empty = true;
+            }
+        }
+    }
+}
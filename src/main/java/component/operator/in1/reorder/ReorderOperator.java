@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in1.reorder;
+
+import common.metrics.Metric;
+import common.tuple.RichTuple;
+import common.util.collection.TimestampDeque;
+import component.operator.in1.BaseOperator1In;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+import query.LiebreContext;
+import stream.Stream;
+
+/**
+ * Operator that sorts a stream whose tuples are out of order by a bounded
+ * amount (K-slack), so that it can feed operators that expect non-decreasing
+ * timestamps, such as time-based aggregates and joins. Tuples are buffered in
+ * timestamp order and emitted once they fall outside the slack:
+ * <ul>
+ * <li>{@link SlackType#TIME}: when their timestamp is at most the largest
+ * timestamp seen minus the slack.</li>
+ * <li>{@link SlackType#COUNT}: when more than {@code slack} tuples are
+ * buffered.</li>
+ * </ul>
+ * The timestamp of the latest emitted position is the watermark of the
+ * operator; tuples that arrive with a smaller timestamp are too late to be
+ * emitted in order and are dropped. The watermark is recorded in the
+ * {@code WATERMARK} metric and the number of dropped tuples in the
+ * {@code LATE} metric. The remaining tuples are emitted when the operator is
+ * flushed.
+ * <p>
+ * The buffer is an array-backed deque where tuples are inserted by searching
+ * from the tail, so the cost per tuple is proportional to its disorder and is
+ * constant for tuples that arrive in order.
+ *
+ * @param <T> The type of the tuples.
+ */
+public class ReorderOperator<T extends RichTuple> extends BaseOperator1In<T, T> {
+
+    /**
+     * How the slack of a {@link ReorderOperator} is defined.
+     */
+    public enum SlackType {
+        /**
+         * The slack is a duration, in the units of the tuple timestamps.
+         */
+        TIME,
+        /**
+         * The slack is a number of tuples.
+         */
+        COUNT
+    }
+
+    private final SlackType slackType;
+    private final long slack;
+    private final TimestampDeque<T> buffer = new TimestampDeque<>();
+    private final Metric watermarkMetric;
+    private final Metric lateMetric;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private long watermark = Long.MIN_VALUE;
+    private long lateTuples;
+
+    /**
+     * Construct.
+     *
+     * @param id        The unique ID of the operator.
+     * @param slackType The type of the slack.
+     * @param slack     The slack, either a duration or a number of tuples.
+     */
+    public ReorderOperator(String id, SlackType slackType, long slack) {
+        super(id);
+        Validate.notNull(slackType, "slackType");
+        Validate.isTrue(slack >= 0, "slack must not be negative");
+        this.slackType = slackType;
+        this.slack = slack;
+        this.watermarkMetric = LiebreContext.operatorMetrics().newAverageMetric(id, "WATERMARK");
+        this.lateMetric = LiebreContext.operatorMetrics().newTotalCountMetric(id, "LATE");
+    }
+
+    @Override
+    public List<T> processTupleIn1(T tuple) {
+        final long timestamp = tuple.getTimestamp();
+        if (timestamp < watermark) {
+            lateTuples++;
+            lateMetric.record(1);
+            return Collections.emptyList();
+        }
+        buffer.addSorted(tuple);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+
+        List<T> result = Collections.emptyList();
+        while (!buffer.isEmpty() && isOutsideSlack(buffer.peekFirst())) {
+            if (result.isEmpty()) {
+                result = new LinkedList<>();
+            }
+            T ready = buffer.pollFirst();
+            watermark = ready.getTimestamp();
+            result.add(ready);
+        }
+        if (!result.isEmpty()) {
+            watermarkMetric.record(watermark);
+        }
+        return result;
+    }
+
+    private boolean isOutsideSlack(T head) {
+        if (slackType == SlackType.COUNT) {
+            return buffer.size() > slack;
+        }
+        return head.getTimestamp() <= maxTimestamp - slack;
+    }
+
+    /**
+     * @return The timestamp of the latest emitted tuple.
+     */
+    public long watermark() {
+        return watermark;
+    }
+
+    /**
+     * @return The number of tuples that were dropped because they arrived after
+     *         the watermark.
+     */
+    public long lateTuples() {
+        return lateTuples;
+    }
+
+    @Override
+    protected void flushAction() {
+        Stream<T> output = getOutput();
+        T tuple;
+        while ((tuple = buffer.pollFirst()) != null) {
+            increaseTuplesWritten();
+            output.addTuple(tuple, getIndex());
+        }
+        super.flushAction();
+    }
+
+    @Override
+    public void enable() {
+        watermarkMetric.enable();
+        lateMetric.enable();
+        super.enable();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+        watermarkMetric.disable();
+        lateMetric.disable();
+    }
+}
@@ -28,7 +28,10 @@ import java.util.List;
 import stream.Stream;
 
 /**
- * Base abstract {@link Operator2In} implementation.
+ * Base abstract {@link Operator2In} implementation. Each invocation only reads
+ * from the inputs that have tuples, up to {@link #READ_BATCH_SIZE} tuples
+ * split proportionally to the size of the inputs. Both inputs are polled (and
+ * can back off) only when neither of them has tuples.
  *
  * @param <IN>  The type of the tuples in the first input.
  * @param <IN2> The type of the tuples in the second input.
@@ -36,6 +39,11 @@ import stream.Stream;
  */
 public abstract class BaseOperator2In<IN, IN2, OUT> extends AbstractOperator2In<IN, IN2, OUT> {
 
+    /**
+     * Maximum number of tuples read from both inputs in one invocation.
+     */
+    protected static final int READ_BATCH_SIZE = 16;
+
     /**
      * Construct.
      *
@@ -54,39 +62,89 @@ public abstract class BaseOperator2In<IN, IN2, OUT> extends AbstractOperator2In<
         Stream<IN2> input2 = getInput2();
         Stream<OUT> output = getOutput();
 
-        IN inTuple1 = input1.getNextTuple(getIndex());
-        IN2 inTuple2 = input2.getNextTuple(getIndex());
+        final int size1 = input1.size();
+        final int size2 = input2.size();
 
-        if (isStreamFinished(inTuple1, input1) && isStreamFinished(inTuple2, input2)) {
-            flush();
+        if (size1 == 0 && size2 == 0) {
+            // Both inputs look empty (or do not report their size): poll both, which
+            // also detects when they are finished and lets the streams back off
+            IN inTuple1 = input1.getNextTuple(getIndex());
+            IN2 inTuple2 = input2.getNextTuple(getIndex());
+            if (isStreamFinished(inTuple1, input1) && isStreamFinished(inTuple2, input2)) {
+                flush();
+                return;
+            }
+            if (inTuple1 != null) {
+                processIn1(inTuple1, output);
+            }
+            if (inTuple2 != null) {
+                processIn2(inTuple2, output);
+            }
             return;
         }
 
-        if (inTuple1 != null) {
-            increaseTuplesRead();
-            List<OUT> outTuples = processTupleIn1(inTuple1);
-            if (outTuples != null) {
-                for (OUT t : outTuples) {
-                    increaseTuplesWritten();
-                    output.addTuple(t, getIndex());
+        // Only read from the inputs that have tuples, proportionally to their size,
+        // so that an idle input never makes the busy one back off
+        int reads1 = batchShare(size1, size2);
+        int reads2 = batchShare(size2, size1);
+        while (reads1 > 0 || reads2 > 0) {
+            if (reads1 > 0) {
+                reads1--;
+                IN inTuple1 = input1.getNextTuple(getIndex());
+                if (inTuple1 == null) {
+                    reads1 = 0;
+                } else {
+                    processIn1(inTuple1, output);
+                }
+            }
+            if (reads2 > 0) {
+                reads2--;
+                IN2 inTuple2 = input2.getNextTuple(getIndex());
+                if (inTuple2 == null) {
+                    reads2 = 0;
+                } else {
+                    processIn2(inTuple2, output);
                 }
             }
         }
+    }
 
-        if (inTuple2 != null) {
-            increaseTuplesRead();
-            List<OUT> outTuples = processTupleIn2(inTuple2);
-            if (outTuples != null) {
-                for (OUT t : outTuples) {
-                    increaseTuplesWritten();
-                    output.addTuple(t, getIndex());
-                }
+    private void processIn1(IN inTuple1, Stream<OUT> output) {
+        increaseTuplesRead();
+        List<OUT> outTuples = processTupleIn1(inTuple1);
+        if (outTuples != null) {
+            for (OUT t : outTuples) {
+                increaseTuplesWritten();
+                output.addTuple(t, getIndex());
             }
         }
     }
 
+    private void processIn2(IN2 inTuple2, Stream<OUT> output) {
+        increaseTuplesRead();
+        List<OUT> outTuples = processTupleIn2(inTuple2);
+        if (outTuples != null) {
+            for (OUT t : outTuples) {
+                increaseTuplesWritten();
+                output.addTuple(t, getIndex());
+            }
+        }
+    }
+
+    /**
+     * The number of tuples to read from an input in one invocation, which is its
+     * share of {@link #READ_BATCH_SIZE} according to the sizes of the inputs.
+     */
+    private static int batchShare(int size, int otherSize) {
+        if (size == 0) {
+            return 0;
+        }
+        final long share = ((long) READ_BATCH_SIZE * size + size + otherSize - 1) / (size + otherSize);
+        return (int) Math.min(share, size);
+    }
+
     @Override
     protected void flushAction() {
-        getOutput().flush();
+        getOutput().flush(getIndex());
     }
 }
@@ -24,6 +24,7 @@
 package component.operator.in2.join;
 
 import common.tuple.RichTuple;
+import common.util.collection.TimestampDeque;
 import component.operator.in2.BaseOperator2In;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,11 +42,11 @@ public class TimeBasedJoin<IN extends RichTuple, IN2 extends RichTuple, OUT exte
 
     private final JoinFunction<IN, IN2, OUT> joinFunction;
     private long ws;
-    private LinkedList<IN> in1Tuples;
-    private LinkedList<IN2> in2Tuples;
+    private TimestampDeque<IN> in1Tuples;
+    private TimestampDeque<IN2> in2Tuples;
     // This is for determinism
-    private LinkedList<IN> in1TuplesBuffer;
-    private LinkedList<IN2> in2TuplesBuffer;
+    private TimestampDeque<IN> in1TuplesBuffer;
+    private TimestampDeque<IN2> in2TuplesBuffer;
 
     /**
      * Construct.
@@ -61,20 +62,16 @@ public class TimeBasedJoin<IN extends RichTuple, IN2 extends RichTuple, OUT exte
         this.ws = windowSize;
         this.joinFunction = joinFunction;
 
-        in1Tuples = new LinkedList<IN>();
-        in2Tuples = new LinkedList<IN2>();
+        in1Tuples = new TimestampDeque<IN>();
+        in2Tuples = new TimestampDeque<IN2>();
 
-        in1TuplesBuffer = new LinkedList<IN>();
-        in2TuplesBuffer = new LinkedList<IN2>();
+        in1TuplesBuffer = new TimestampDeque<IN>();
+        in2TuplesBuffer = new TimestampDeque<IN2>();
     }
 
     protected void purge(long ts) {
-        while (in1Tuples.size() > 0 && in1Tuples.peek().getTimestamp() < ts - ws) {
-            in1Tuples.poll();
-        }
-        while (in2Tuples.size() > 0 && in2Tuples.peek().getTimestamp() < ts - ws) {
-            in2Tuples.poll();
-        }
+        in1Tuples.removeBefore(ts - ws);
+        in2Tuples.removeBefore(ts - ws);
     }
 
     private List<OUT> processReadyTuples() {
@@ -88,17 +85,14 @@ public class TimeBasedJoin<IN extends RichTuple, IN2 extends RichTuple, OUT exte
 
                 purge(tuple.getTimestamp());
 
-                if (in2Tuples.size() > 0) {
-
-                    for (IN2 t : in2Tuples) {
-                        OUT result = joinFunction.apply(tuple, t);
-                        if (result != null) {
-                            results.add(result);
-                        }
+                for (int i = 0; i < in2Tuples.size(); i++) {
+                    OUT result = joinFunction.apply(tuple, in2Tuples.get(i));
+                    if (result != null) {
+                        results.add(result);
                     }
                 }
 
-                in1Tuples.add(tuple);
+                in1Tuples.addLast(tuple);
 
             } else {
 
@@ -106,17 +100,14 @@ public class TimeBasedJoin<IN extends RichTuple, IN2 extends RichTuple, OUT exte
 
                 purge(tuple.getTimestamp());
 
-                if (in1Tuples.size() > 0) {
-
-                    for (IN t : in1Tuples) {
-                        OUT result = joinFunction.apply(t, tuple);
-                        if (result != null) {
-                            results.add(result);
-                        }
+                for (int i = 0; i < in1Tuples.size(); i++) {
+                    OUT result = joinFunction.apply(in1Tuples.get(i), tuple);
+                    if (result != null) {
+                        results.add(result);
                     }
                 }
 
-                in2Tuples.add(tuple);
+                in2Tuples.addLast(tuple);
             }
         }
 
@@ -146,27 +137,27 @@ public class TimeBasedJoin<IN extends RichTuple, IN2 extends RichTuple, OUT exte
     }
 
     private void in1buffer(IN t) {
-        in1TuplesBuffer.add(t);
+        in1TuplesBuffer.addLast(t);
     }
 
     private void in2buffer(IN2 t) {
-        in2TuplesBuffer.add(t);
+        in2TuplesBuffer.addLast(t);
     }
 
     private IN buffer1Peek() {
-        return in1TuplesBuffer.peek();
+        return in1TuplesBuffer.peekFirst();
     }
 
     private IN2 buffer2Peek() {
-        return in2TuplesBuffer.peek();
+        return in2TuplesBuffer.peekFirst();
     }
 
     private IN buffer1Poll() {
-        return in1TuplesBuffer.poll();
+        return in1TuplesBuffer.pollFirst();
     }
 
     private IN2 buffer2Poll() {
-        return in2TuplesBuffer.poll();
+        return in2TuplesBuffer.pollFirst();
     }
 
     @Override
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in2.table;
+
+import common.tuple.RichTuple;
+import common.util.collection.LongKeyedTable;
+import component.operator.in2.BaseOperator2In;
+import component.operator.in2.join.JoinFunction;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Join operator that enriches the tuples of a stream with the rows of a table
+ * that is maintained from a second stream. The tuples of the first input probe
+ * the table and the tuples of the second input are upserted into it, keeping
+ * for each key the row with the latest timestamp. Each probe that finds a row
+ * produces the result of the {@link JoinFunction} (inner join semantics).
+ * <p>
+ * The table can optionally be bounded, evicting the least recently used rows,
+ * and be backed by a {@link TableLoader} that is called for keys that are not
+ * in the table, e.g., to use the table as a cache of an external store.
+ * <p>
+ * Unlike other two-input operators, this operator can run when only one of its
+ * inputs has tuples, so the first stream never waits for the table stream.
+ *
+ * @param <IN>  The type of the tuples that probe the table.
+ * @param <IN2> The type of the rows of the table.
+ * @param <OUT> The type of the output tuples.
+ */
+public class StreamTableJoin<IN, IN2 extends RichTuple, OUT> extends BaseOperator2In<IN, IN2, OUT> {
+
+    private final TableKeyFunction<IN> probeKeyFunction;
+    private final TableKeyFunction<IN2> tableKeyFunction;
+    private final JoinFunction<IN, IN2, OUT> joinFunction;
+    private final TableLoader<IN2> loader;
+    private final LongKeyedTable<IN2> table;
+
+    /**
+     * Construct a join with an unbounded table and no loader.
+     */
+    public StreamTableJoin(String id, TableKeyFunction<IN> probeKeyFunction, TableKeyFunction<IN2> tableKeyFunction,
+            JoinFunction<IN, IN2, OUT> joinFunction) {
+        this(id, probeKeyFunction, tableKeyFunction, joinFunction, 0, null);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param id               The unique ID of the operator.
+     * @param probeKeyFunction The key of the tuples of the first input.
+     * @param tableKeyFunction The key of the rows of the table.
+     * @param joinFunction     The function applied to each probe tuple and the
+     *                         row with the same key.
+     * @param maxSize          The maximum number of rows in the table, or
+     *                         {@code 0} for no bound.
+     * @param loader           The loader for keys that are not in the table, or
+     *                         {@code null}.
+     */
+    public StreamTableJoin(String id, TableKeyFunction<IN> probeKeyFunction, TableKeyFunction<IN2> tableKeyFunction,
+            JoinFunction<IN, IN2, OUT> joinFunction, int maxSize, TableLoader<IN2> loader) {
+        super(id);
+        Validate.notNull(probeKeyFunction, "probeKeyFunction");
+        Validate.notNull(tableKeyFunction, "tableKeyFunction");
+        Validate.notNull(joinFunction, "joinFunction");
+        this.probeKeyFunction = probeKeyFunction;
+        this.tableKeyFunction = tableKeyFunction;
+        this.joinFunction = joinFunction;
+        this.loader = loader;
+        this.table = new LongKeyedTable<>(maxSize);
+    }
+
+    @Override
+    public List<OUT> processTupleIn1(IN tuple) {
+        final long key = probeKeyFunction.key(tuple);
+        IN2 row = table.get(key);
+        if (row == null && loader != null) {
+            row = loader.load(key);
+            if (row != null) {
+                table.put(key, row, row.getTimestamp());
+            }
+        }
+        if (row == null) {
+            return Collections.emptyList();
+        }
+        OUT result = joinFunction.apply(tuple, row);
+        return result != null ? Collections.singletonList(result) : Collections.emptyList();
+    }
+
+    @Override
+    public List<OUT> processTupleIn2(IN2 row) {
+        table.put(tableKeyFunction.key(row), row, row.getTimestamp());
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return The number of rows currently in the table.
+     */
+    public int tableSize() {
+        return table.size();
+    }
+
+    @Override
+    public void enable() {
+        probeKeyFunction.enable();
+        tableKeyFunction.enable();
+        joinFunction.enable();
+        if (loader != null) {
+            loader.enable();
+        }
+        super.enable();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+        probeKeyFunction.disable();
+        tableKeyFunction.disable();
+        joinFunction.disable();
+        if (loader != null) {
+            loader.disable();
+        }
+    }
+
+    @Override
+    public boolean canRun() {
+        return (getInput().size() > 0 || getInput2().size() > 0) && getOutput().remainingCapacity() > 0
+                && probeKeyFunction.canRun() && tableKeyFunction.canRun() && joinFunction.canRun()
+                && (loader == null || loader.canRun());
+    }
+}
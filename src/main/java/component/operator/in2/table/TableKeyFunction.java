@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.in2.table;
+
+import component.ComponentFunction;
+import java.io.Serializable;
+
+/**
+ * Function that returns the (numeric) key of a tuple used by a
+ * {@link StreamTableJoin}, either to probe or to update the table.
+ *
+ * @param <T> The type of the tuples.
+ */
+@FunctionalInterface
+public interface TableKeyFunction<T> extends ComponentFunction, Serializable {
+
+    long key(T tuple);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.router;
+
+import java.io.Serializable;
+
+/**
+ * Function that returns the value of a named attribute of a tuple, used by the
+ * predicates of a {@link ContentBasedRouterOperator}. Attributes used in range
+ * predicates must return {@link Number}s.
+ *
+ * @param <T> The type of the tuples.
+ */
+@FunctionalInterface
+public interface AttributeExtractor<T> extends Serializable {
+
+    /**
+     * Get the value of the attribute.
+     *
+     * @param tuple The tuple.
+     * @return The value, or {@code null} if the tuple does not have the attribute,
+     *         in which case no predicate on the attribute matches.
+     */
+    Object extract(T tuple);
+}
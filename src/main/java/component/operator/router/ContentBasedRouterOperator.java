@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.router;
+
+import component.ComponentType;
+import component.StreamConsumer;
+import component.operator.AbstractOperator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+import stream.Stream;
+
+/**
+ * {@link RouterOperator} that sends each tuple to the outputs whose
+ * {@link Subscription}s match it. Subscriptions are declarative conjunctions
+ * of equality and range predicates on named attributes, which are extracted
+ * from the tuples by registered {@link AttributeExtractor}s. An output can have
+ * several subscriptions, in which case it receives the tuples that match any of
+ * them; outputs without subscriptions receive no tuples.
+ * <p>
+ * When the operator first runs, the predicates are indexed: equality
+ * predicates in a hash map per attribute and range predicates in an interval
+ * tree per attribute. For each tuple, the operator looks up each attribute
+ * once and counts the satisfied predicates of each subscription; a subscription
+ * matches when all its predicates are satisfied. The cost is therefore
+ * proportional to the number of attributes and satisfied predicates, not to the
+ * number of outputs, and the matching outputs are collected in a reused array.
+ *
+ * @param <T> The type of input/output tuples.
+ */
+public class ContentBasedRouterOperator<T> extends AbstractOperator<T, T> implements RouterOperator<T> {
+
+    private final Map<String, AttributeExtractor<T>> extractors = new HashMap<>();
+    private final Map<String, List<Subscription>> subscriptions = new HashMap<>();
+
+    private boolean firstInvocation = true;
+    private Attribute<T>[] attributes;
+    // Per subscription: its output and number of predicates
+    private int[] subscriptionOutput;
+    private int[] subscriptionSize;
+    private int[] matchAll;
+    // Per subscription: satisfied predicates for the current tuple, valid if the
+    // epoch of the subscription is the current epoch
+    private int[] counts;
+    private long[] countEpochs;
+    // Per output: whether it already matched the current tuple
+    private long[] outputEpochs;
+    // One per tuple; a long, so that it never wraps around to the initial -1
+    private long epoch;
+    private Stream<T>[] outputs;
+    private Stream<T>[] matched;
+    private int matchedCount;
+
+    public ContentBasedRouterOperator(String id) {
+        super(id, ComponentType.ROUTER);
+    }
+
+    /**
+     * Register the extractor of an attribute that is used in subscriptions.
+     *
+     * @param attribute The name of the attribute.
+     * @param extractor The extractor.
+     */
+    public void registerAttribute(String attribute, AttributeExtractor<T> extractor) {
+        Validate.notBlank(attribute, "attribute");
+        Validate.notNull(extractor, "extractor");
+        Validate.validState(firstInvocation, "Attributes cannot be registered after the router started");
+        extractors.put(attribute, extractor);
+    }
+
+    /**
+     * Send the tuples that match the subscription to the given consumer, which
+     * must be connected to this router.
+     *
+     * @param consumer     The consumer connected to one of the outputs.
+     * @param subscription The subscription.
+     */
+    public void subscribe(StreamConsumer<T> consumer, Subscription subscription) {
+        Validate.notNull(consumer, "consumer");
+        Validate.notNull(subscription, "subscription");
+        Validate.validState(firstInvocation, "Subscriptions cannot be added after the router started");
+        for (Subscription.Predicate predicate : subscription.predicates()) {
+            Validate.isTrue(extractors.containsKey(predicate.attribute), "Unknown attribute: %s",
+                    predicate.attribute);
+        }
+        subscriptions.computeIfAbsent(consumer.getId(), k -> new ArrayList<>()).add(subscription);
+    }
+
+    @Override
+    protected final void process() {
+        if (isFlushed()) {
+            return;
+        }
+        if (firstInvocation) {
+            firstInvocation = false;
+            buildIndex();
+        }
+
+        Stream<T> input = getInput();
+        T inTuple = input.getNextTuple(getIndex());
+
+        if (isStreamFinished(inTuple, input)) {
+            flush();
+            return;
+        }
+
+        if (inTuple != null) {
+            increaseTuplesRead();
+            final int matches = match(inTuple);
+            for (int i = 0; i < matches; i++) {
+                increaseTuplesWritten();
+                matched[i].addTuple(inTuple, getIndex());
+            }
+        }
+    }
+
+    /**
+     * Find the outputs that match a tuple and store them in {@link #matched}.
+     *
+     * @return The number of matching outputs.
+     */
+    private int match(T tuple) {
+        epoch++;
+        matchedCount = 0;
+        for (int subscription : matchAll) {
+            addMatch(subscription);
+        }
+        for (Attribute<T> attribute : attributes) {
+            final Object value = attribute.extractor.extract(tuple);
+            if (value == null) {
+                continue;
+            }
+            if (attribute.equalityIndex != null) {
+                int[] satisfied = attribute.equalityIndex.get(value);
+                if (satisfied != null) {
+                    for (int subscription : satisfied) {
+                        satisfy(subscription);
+                    }
+                }
+            }
+            if (attribute.rangeIndex != null) {
+                final double point = ((Number) value).doubleValue();
+                if (!Double.isNaN(point)) {
+                    attribute.rangeIndex.stab(point, this::satisfy);
+                }
+            }
+        }
+        return matchedCount;
+    }
+
+    private void satisfy(int subscription) {
+        if (countEpochs[subscription] != epoch) {
+            countEpochs[subscription] = epoch;
+            counts[subscription] = 0;
+        }
+        if (++counts[subscription] == subscriptionSize[subscription]) {
+            addMatch(subscription);
+        }
+    }
+
+    private void addMatch(int subscription) {
+        final int output = subscriptionOutput[subscription];
+        if (outputEpochs[output] != epoch) {
+            outputEpochs[output] = epoch;
+            matched[matchedCount++] = outputs[output];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void buildIndex() {
+        outputs = getOutputs().toArray(new Stream[0]);
+        matched = new Stream[outputs.length];
+        outputEpochs = new long[outputs.length];
+        Arrays.fill(outputEpochs, -1);
+
+        // Number the subscriptions and collect the predicates per attribute
+        List<Integer> outputOfSubscription = new ArrayList<>();
+        List<Integer> sizeOfSubscription = new ArrayList<>();
+        List<Integer> matchAllSubscriptions = new ArrayList<>();
+        Map<String, Map<Object, List<Integer>>> equalities = new HashMap<>();
+        Map<String, List<double[]>> ranges = new HashMap<>();
+        for (int output = 0; output < outputs.length; output++) {
+            for (StreamConsumer<T> consumer : outputs[output].consumers()) {
+                for (Subscription s : subscriptions.getOrDefault(consumer.getId(),
+                        new ArrayList<Subscription>())) {
+                    final int id = outputOfSubscription.size();
+                    outputOfSubscription.add(output);
+                    sizeOfSubscription.add(s.predicates().size());
+                    if (s.predicates().isEmpty()) {
+                        matchAllSubscriptions.add(id);
+                    }
+                    for (Subscription.Predicate p : s.predicates()) {
+                        if (p.isEquality()) {
+                            equalities.computeIfAbsent(p.attribute, k -> new HashMap<>())
+                                    .computeIfAbsent(p.value, k -> new ArrayList<>()).add(id);
+                        } else {
+                            ranges.computeIfAbsent(p.attribute, k -> new ArrayList<>())
+                                    .add(new double[] { p.low, p.high, id });
+                        }
+                    }
+                }
+            }
+        }
+        subscriptionOutput = toArray(outputOfSubscription);
+        subscriptionSize = toArray(sizeOfSubscription);
+        matchAll = toArray(matchAllSubscriptions);
+        counts = new int[subscriptionOutput.length];
+        countEpochs = new long[subscriptionOutput.length];
+        Arrays.fill(countEpochs, -1);
+
+        List<Attribute<T>> indexed = new ArrayList<>();
+        for (Map.Entry<String, AttributeExtractor<T>> entry : extractors.entrySet()) {
+            Attribute<T> attribute = new Attribute<>(entry.getValue());
+            Map<Object, List<Integer>> equality = equalities.get(entry.getKey());
+            if (equality != null) {
+                attribute.equalityIndex = new HashMap<>();
+                for (Map.Entry<Object, List<Integer>> value : equality.entrySet()) {
+                    attribute.equalityIndex.put(value.getKey(), toArray(value.getValue()));
+                }
+            }
+            List<double[]> range = ranges.get(entry.getKey());
+            if (range != null) {
+                double[] lows = new double[range.size()];
+                double[] highs = new double[range.size()];
+                int[] ids = new int[range.size()];
+                for (int i = 0; i < range.size(); i++) {
+                    lows[i] = range.get(i)[0];
+                    highs[i] = range.get(i)[1];
+                    ids[i] = (int) range.get(i)[2];
+                }
+                attribute.rangeIndex = new IntervalIndex(lows, highs, ids);
+            }
+            if (attribute.equalityIndex != null || attribute.rangeIndex != null) {
+                indexed.add(attribute);
+            }
+        }
+        attributes = indexed.toArray(new Attribute[0]);
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Find the outputs that match the tuple. Prefer letting the router route the
+     * tuples itself, which does not allocate a collection per tuple.
+     */
+    @Override
+    public Collection<? extends Stream<T>> chooseOutputs(T tuple) {
+        if (firstInvocation) {
+            firstInvocation = false;
+            buildIndex();
+        }
+        return new ArrayList<>(Arrays.asList(matched).subList(0, match(tuple)));
+    }
+
+    @Override
+    public void addOutput(Stream<T> stream) {
+        state.addOutput(stream);
+    }
+
+    public Stream<T> getOutput() {
+        throw new UnsupportedOperationException(String.format("'%s': Router has multiple outputs!", state.getId()));
+    }
+
+    @Override
+    public boolean canRun() {
+        if (getInput().size() == 0) {
+            return false;
+        }
+        for (Stream<?> output : getOutputs()) {
+            if (output.remainingCapacity() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Attribute<T> {
+        private final AttributeExtractor<T> extractor;
+        private Map<Object, int[]> equalityIndex;
+        private IntervalIndex rangeIndex;
+
+        private Attribute(AttributeExtractor<T> extractor) {
+            this.extractor = extractor;
+        }
+    }
+}
@@ -72,11 +72,22 @@ public class HashBasedRouterOperator<T extends RichTuple> extends AbstractOperat
         if (inTuple != null) {
             increaseTuplesRead();
             increaseTuplesWritten();
-            int i = (int) (inTuple.getKey().hashCode() % outArray.length);
-            outArray[i].addTuple(inTuple, getIndex());
+            outArray[partition(inTuple.getKey(), outArray.length)].addTuple(inTuple, getIndex());
         }
     }
 
+    /**
+     * Get the partition that a key is assigned to. Also used by keyed operators
+     * that need to know which keys belong to their instance.
+     *
+     * @param key        The key of the tuple.
+     * @param partitions The total number of partitions.
+     * @return The partition index, in {@code [0, partitions)}.
+     */
+    public static int partition(String key, int partitions) {
+        return Math.floorMod(key.hashCode(), partitions);
+    }
+
     @Override
     public Collection<? extends Stream<T>> chooseOutputs(T tuple) {
         assert (false);
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static centered interval tree that finds all the closed intervals that
+ * contain a point in {@code O(log n + k)} time, where {@code k} is the number
+ * of intervals found. Each interval has an integer id.
+ */
+final class IntervalIndex {
+
+    private final Node root;
+
+    /**
+     * Build the index.
+     *
+     * @param lows  The lower bounds of the intervals.
+     * @param highs The upper bounds of the intervals.
+     * @param ids   The ids of the intervals.
+     */
+    IntervalIndex(double[] lows, double[] highs, int[] ids) {
+        List<Integer> all = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            all.add(i);
+        }
+        this.root = build(all, lows, highs, ids);
+    }
+
+    /**
+     * Call the visitor with the id of each interval that contains the point.
+     */
+    void stab(double point, IdVisitor visitor) {
+        Node node = root;
+        while (node != null) {
+            if (point < node.center) {
+                for (int i = 0; i < node.byLow.length && node.lowsSorted[i] <= point; i++) {
+                    visitor.visit(node.byLow[i]);
+                }
+                node = node.left;
+            } else if (point > node.center) {
+                for (int i = 0; i < node.byHigh.length && node.highsSorted[i] >= point; i++) {
+                    visitor.visit(node.byHigh[i]);
+                }
+                node = node.right;
+            } else {
+                for (int id : node.byLow) {
+                    visitor.visit(id);
+                }
+                return;
+            }
+        }
+    }
+
+    private static Node build(List<Integer> intervals, double[] lows, double[] highs, int[] ids) {
+        if (intervals.isEmpty()) {
+            return null;
+        }
+        // The median of the endpoints splits the intervals evenly
+        double[] endpoints = new double[2 * intervals.size()];
+        int e = 0;
+        for (int i : intervals) {
+            endpoints[e++] = lows[i];
+            endpoints[e++] = highs[i];
+        }
+        Arrays.sort(endpoints);
+        final double center = endpoints[endpoints.length / 2];
+
+        List<Integer> left = new ArrayList<>();
+        List<Integer> right = new ArrayList<>();
+        List<Integer> overlapping = new ArrayList<>();
+        for (int i : intervals) {
+            if (highs[i] < center) {
+                left.add(i);
+            } else if (lows[i] > center) {
+                right.add(i);
+            } else {
+                overlapping.add(i);
+            }
+        }
+        Node node = new Node(center);
+        Integer[] sorted = overlapping.toArray(new Integer[0]);
+        Arrays.sort(sorted, Comparator.comparingDouble(i -> lows[i]));
+        node.byLow = new int[sorted.length];
+        node.lowsSorted = new double[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            node.byLow[i] = ids[sorted[i]];
+            node.lowsSorted[i] = lows[sorted[i]];
+        }
+        Arrays.sort(sorted, Comparator.comparingDouble(i -> -highs[i]));
+        node.byHigh = new int[sorted.length];
+        node.highsSorted = new double[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            node.byHigh[i] = ids[sorted[i]];
+            node.highsSorted[i] = highs[sorted[i]];
+        }
+        node.left = build(left, lows, highs, ids);
+        node.right = build(right, lows, highs, ids);
+        return node;
+    }
+
+    @FunctionalInterface
+    interface IdVisitor {
+        void visit(int id);
+    }
+
+    private static final class Node {
+        private final double center;
+        // Intervals that contain the center, by increasing lower bound
+        private int[] byLow;
+        private double[] lowsSorted;
+        // Intervals that contain the center, by decreasing upper bound
+        private int[] byHigh;
+        private double[] highsSorted;
+        private Node left;
+        private Node right;
+
+        private Node(double center) {
+            this.center = center;
+        }
+    }
+}
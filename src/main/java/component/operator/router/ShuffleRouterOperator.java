@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.router;
+
+import component.ComponentType;
+import component.operator.AbstractOperator;
+import java.util.Collection;
+import java.util.Collections;
+import org.apache.commons.lang3.Validate;
+import stream.Stream;
+
+/**
+ * {@link RouterOperator} that distributes tuples among its outputs without any
+ * ordering or partitioning guarantee, for parallel instances of stateless
+ * operators. Tuples are sent round-robin in batches of {@code batchSize}
+ * consecutive tuples per output. When a batch is complete, the next output in
+ * round-robin order is skipped if its queue is more than a batch longer than
+ * the shortest output queue, so that slow instances receive fewer tuples.
+ *
+ * @param <T> The type of input/output tuples.
+ */
+public class ShuffleRouterOperator<T> extends AbstractOperator<T, T> implements RouterOperator<T> {
+
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    private final int batchSize;
+    private boolean firstInvocation = true;
+    private Stream<T>[] outArray;
+    private int current;
+    private int remainingInBatch;
+
+    public ShuffleRouterOperator(String id) {
+        this(id, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param id        The unique ID of the operator.
+     * @param batchSize The number of consecutive tuples sent to the same output.
+     */
+    public ShuffleRouterOperator(String id, int batchSize) {
+        super(id, ComponentType.ROUTER);
+        Validate.isTrue(batchSize > 0, "batchSize must be positive");
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    protected final void process() {
+        if (isFlushed()) {
+            return;
+        }
+
+        initOutputs();
+
+        Stream<T> input = getInput();
+        T inTuple = input.getNextTuple(getIndex());
+
+        if (isStreamFinished(inTuple, input)) {
+            flush();
+            return;
+        }
+
+        if (inTuple != null) {
+            increaseTuplesRead();
+            increaseTuplesWritten();
+            outArray[nextOutput()].addTuple(inTuple, getIndex());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initOutputs() {
+        if (firstInvocation) {
+            firstInvocation = false;
+            outArray = getOutputs().toArray(new Stream[0]);
+            current = outArray.length - 1;
+        }
+    }
+
+    /**
+     * @return The output of the next tuple, which changes when a batch is
+     *         complete.
+     */
+    private int nextOutput() {
+        if (remainingInBatch == 0) {
+            current = nextUnloadedOutput();
+            remainingInBatch = batchSize;
+        }
+        remainingInBatch--;
+        return current;
+    }
+
+    /**
+     * Find the next output in round-robin order whose queue is at most one batch
+     * longer than the shortest queue.
+     */
+    private int nextUnloadedOutput() {
+        int shortest = Integer.MAX_VALUE;
+        for (Stream<T> output : outArray) {
+            shortest = Math.min(shortest, output.size());
+        }
+        int next = current;
+        for (int i = 0; i < outArray.length; i++) {
+            next = next + 1 == outArray.length ? 0 : next + 1;
+            if (outArray[next].size() <= shortest + batchSize) {
+                return next;
+            }
+        }
+        // The queues changed while searching
+        return next;
+    }
+
+    @Override
+    public Collection<? extends Stream<T>> chooseOutputs(T tuple) {
+        initOutputs();
+        return Collections.singletonList(outArray[nextOutput()]);
+    }
+
+    @Override
+    public void addOutput(Stream<T> stream) {
+        state.addOutput(stream);
+    }
+
+    public Stream<T> getOutput() {
+        throw new UnsupportedOperationException(String.format("'%s': Router has multiple outputs!", state.getId()));
+    }
+
+    @Override
+    public boolean canRun() {
+        if (getInput().size() == 0) {
+            return false;
+        }
+        for (Stream<?> output : getOutputs()) {
+            if (output.remainingCapacity() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.router;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Conjunction of predicates on the attributes of tuples that selects which
+ * tuples a {@link ContentBasedRouterOperator} sends to an output, e.g.:
+ *
+ * <pre>
+ * Subscription.where().eq("type", "trade").between("price", 10, 20)
+ * </pre>
+ *
+ * Equality predicates compare values with {@link Object#equals(Object)}, so the
+ * values must have the same type as the ones returned by the
+ * {@link AttributeExtractor}. Range predicates compare the
+ * {@link Number#doubleValue()} of the attributes. A subscription without
+ * predicates matches all the tuples.
+ */
+public final class Subscription implements Serializable {
+
+    private final List<Predicate> predicates = new ArrayList<>();
+
+    private Subscription() {
+    }
+
+    /**
+     * @return A new subscription without predicates.
+     */
+    public static Subscription where() {
+        return new Subscription();
+    }
+
+    /**
+     * Require the attribute to be equal to the given value.
+     */
+    public Subscription eq(String attribute, Object value) {
+        Validate.notNull(value, "value");
+        predicates.add(new Predicate(attribute, value, 0, 0));
+        return this;
+    }
+
+    /**
+     * Require the attribute to be in the closed range {@code [low, high]}.
+     */
+    public Subscription between(String attribute, double low, double high) {
+        Validate.isTrue(low <= high, "low must not be larger than high");
+        predicates.add(new Predicate(attribute, null, low, high));
+        return this;
+    }
+
+    /**
+     * Require the attribute to be larger than or equal to the given value.
+     */
+    public Subscription atLeast(String attribute, double low) {
+        return between(attribute, low, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Require the attribute to be larger than the given value.
+     */
+    public Subscription greaterThan(String attribute, double low) {
+        return between(attribute, Math.nextUp(low), Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Require the attribute to be smaller than or equal to the given value.
+     */
+    public Subscription atMost(String attribute, double high) {
+        return between(attribute, Double.NEGATIVE_INFINITY, high);
+    }
+
+    /**
+     * Require the attribute to be smaller than the given value.
+     */
+    public Subscription lessThan(String attribute, double high) {
+        return between(attribute, Double.NEGATIVE_INFINITY, Math.nextDown(high));
+    }
+
+    List<Predicate> predicates() {
+        return Collections.unmodifiableList(predicates);
+    }
+
+    /**
+     * Equality predicate if {@code value} is not {@code null}, range predicate
+     * otherwise.
+     */
+    static final class Predicate implements Serializable {
+        final String attribute;
+        final Object value;
+        final double low;
+        final double high;
+
+        private Predicate(String attribute, Object value, double low, double high) {
+            Validate.notBlank(attribute, "attribute");
+            this.attribute = attribute;
+            this.value = value;
+            this.low = low;
+            this.high = high;
+        }
+
+        boolean isEquality() {
+            return value != null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package component.operator.union;
+
+import common.tuple.RichTuple;
+import component.ComponentType;
+import component.operator.AbstractOperator;
+import stream.Stream;
+
+/**
+ * Operator that unites multiple input streams into one, merging them in
+ * timestamp order. If each input is sorted by timestamp, so is the output.
+ * <p>
+ * The operator keeps the head (next tuple) of every input in a binary heap and
+ * only emits the smallest head when all the inputs that are not finished have
+ * a head, since an input without a head might still produce a smaller
+ * timestamp. Unlike merging with a multi-writer stream, this needs no per-tuple
+ * allocation and works with any {@link RichTuple}, but an idle input stalls
+ * the output until it produces a tuple or finishes.
+ *
+ * @param <T> The type of input/output tuples.
+ */
+public class OrderedUnionOperator<T extends RichTuple> extends AbstractOperator<T, T> {
+
+    private Stream<T>[] inputs;
+    private T[] heads;
+    private boolean[] finished;
+    // Binary min-heap of the indexes of the inputs that have a head
+    private int[] heap;
+    private int heapSize;
+    // Number of inputs that are not finished and have no head
+    private int missingHeads;
+    private int finishedInputs;
+
+    /**
+     * Construct.
+     *
+     * @param id The unique ID of the operator.
+     */
+    public OrderedUnionOperator(String id) {
+        super(id, ComponentType.UNION);
+    }
+
+    @Override
+    protected final void process() {
+        if (isFlushed()) {
+            return;
+        }
+        if (inputs == null) {
+            firstInvocation();
+        }
+        // Read only from the inputs that do not have a head yet, starting with the
+        // ones that have tuples, so that empty inputs back off only when unavoidable
+        for (int i = 0; i < inputs.length && missingHeads > 0; i++) {
+            if (heads[i] == null && !finished[i] && inputs[i].size() > 0) {
+                read(i);
+            }
+        }
+        for (int i = 0; i < inputs.length && missingHeads > 0; i++) {
+            if (heads[i] == null && !finished[i]) {
+                read(i);
+            }
+        }
+        Stream<T> output = getOutput();
+        while (missingHeads == 0 && heapSize > 0) {
+            final int input = heap[0];
+            final T tuple = heads[input];
+            heads[input] = null;
+            missingHeads++;
+            removeHeapRoot();
+            increaseTuplesWritten();
+            output.addTuple(tuple, getIndex());
+            // Refill without waiting, to keep merging while data is available
+            if (inputs[input].size() > 0) {
+                read(input);
+            }
+        }
+        if (finishedInputs == inputs.length && heapSize == 0) {
+            flush();
+        }
+    }
+
+    private void read(int input) {
+        T tuple = inputs[input].getNextTuple(getIndex());
+        if (isStreamFinished(tuple, inputs[input])) {
+            finished[input] = true;
+            finishedInputs++;
+            missingHeads--;
+            return;
+        }
+        if (tuple != null) {
+            increaseTuplesRead();
+            heads[input] = tuple;
+            missingHeads--;
+            addToHeap(input);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void firstInvocation() {
+        inputs = getInputs().toArray(new Stream[0]);
+        heads = (T[]) new RichTuple[inputs.length];
+        finished = new boolean[inputs.length];
+        heap = new int[inputs.length];
+        missingHeads = inputs.length;
+    }
+
+    private void addToHeap(int input) {
+        int position = heapSize++;
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (!less(input, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = input;
+    }
+
+    private void removeHeapRoot() {
+        final int last = heap[--heapSize];
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], last)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = last;
+    }
+
+    /**
+     * Order of the inputs in the heap: by the timestamp of their heads and then by
+     * their index, so that ties are resolved deterministically.
+     */
+    private boolean less(int input1, int input2) {
+        final long ts1 = heads[input1].getTimestamp();
+        final long ts2 = heads[input2].getTimestamp();
+        return ts1 < ts2 || (ts1 == ts2 && input1 < input2);
+    }
+
+    @Override
+    public void addInput(Stream<T> stream) {
+        state.addInput(stream);
+    }
+
+    /**
+     * Not meaningful in this operator, use {@link #getInputs()} instead.
+     *
+     * @throws UnsupportedOperationException always, since
+     *                                       {@link OrderedUnionOperator} has
+     *                                       multiple inputs.
+     */
+    @Override
+    public Stream<T> getInput() {
+        throw new UnsupportedOperationException(String.format("'%s': Unions have multiple inputs!", state.getId()));
+    }
+
+    @Override
+    public boolean canRun() {
+        if (getOutput().remainingCapacity() == 0) {
+            return false;
+        }
+        for (Stream<?> input : getInputs()) {
+            if (input.size() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -29,12 +29,23 @@ import stream.Stream;
 
 /**
  * Operator that unites multiple input streams into one. No guarantee on the
- * ordering of the output tuples.
+ * ordering of the output tuples. Each invocation only reads from the inputs
+ * that have tuples, up to {@link #READ_BATCH_SIZE} tuples split proportionally
+ * to the size of the inputs. All the inputs are polled (and can back off) only
+ * when none of them has tuples.
  *
  * @param <T> The type of input/output tuples.
  */
 public class UnionOperator<T> extends AbstractOperator<T, T> {
 
+    /**
+     * Maximum number of tuples read from all inputs in one invocation.
+     */
+    protected static final int READ_BATCH_SIZE = 16;
+
+    private Stream<T>[] inputs;
+    private int[] sizes;
+
     /**
      * Construct.
      *
@@ -49,22 +60,60 @@ public class UnionOperator<T> extends AbstractOperator<T, T> {
         if (isFlushed()) {
             return;
         }
+        if (inputs == null) {
+            firstInvocation();
+        }
         Stream<T> output = getOutput();
-        int finishedInputs = 0;
-        for (Stream<T> in : getInputs()) {
-            T inTuple = in.getNextTuple(getIndex());
-            finishedInputs += isStreamFinished(inTuple, in) ? 1 : 0;
-            if (inTuple != null) {
-                increaseTuplesRead();
-                increaseTuplesWritten();
-                output.addTuple(inTuple, getIndex());
-            }
+        int totalSize = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            sizes[i] = inputs[i].size();
+            totalSize += sizes[i];
         }
-        if (finishedInputs == getInputs().size()) {
-            flush();
-            output.flush();
+
+        if (totalSize == 0) {
+            // No input has tuples (or reports its size): poll all of them, which also
+            // detects when they are finished and lets the streams back off
+            int finishedInputs = 0;
+            for (Stream<T> in : inputs) {
+                T inTuple = in.getNextTuple(getIndex());
+                finishedInputs += isStreamFinished(inTuple, in) ? 1 : 0;
+                if (inTuple != null) {
+                    forward(inTuple, output);
+                }
+            }
+            if (finishedInputs == inputs.length) {
+                flush();
+                output.flush(getIndex());
+            }
             return;
         }
+
+        // Only read from the inputs that have tuples, proportionally to their size
+        for (int i = 0; i < inputs.length; i++) {
+            if (sizes[i] == 0) {
+                continue;
+            }
+            final long share = ((long) READ_BATCH_SIZE * sizes[i] + totalSize - 1) / totalSize;
+            for (long reads = Math.min(share, sizes[i]); reads > 0; reads--) {
+                T inTuple = inputs[i].getNextTuple(getIndex());
+                if (inTuple == null) {
+                    break;
+                }
+                forward(inTuple, output);
+            }
+        }
+    }
+
+    private void forward(T inTuple, Stream<T> output) {
+        increaseTuplesRead();
+        increaseTuplesWritten();
+        output.addTuple(inTuple, getIndex());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void firstInvocation() {
+        inputs = getInputs().toArray(new Stream[0]);
+        sizes = new int[inputs.length];
     }
 
     @Override
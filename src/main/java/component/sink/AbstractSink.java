@@ -23,10 +23,13 @@
 
 package component.sink;
 
+import common.metrics.Metric;
+import common.tuple.RichTuple;
 import component.AbstractComponent;
 import component.ComponentType;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import query.LiebreContext;
 import stream.Stream;
 
@@ -38,7 +41,9 @@ import stream.Stream;
  */
 public abstract class AbstractSink<IN> extends AbstractComponent<IN, Void> implements Sink<IN> {
 
+    public static final String METRIC_LATENCY = "LATENCY";
     private static final int INPUT_KEY = 0;
+    private final Metric latencyMetric;
 
     /**
      * Construct.
@@ -47,6 +52,7 @@ public abstract class AbstractSink<IN> extends AbstractComponent<IN, Void> imple
      */
     public AbstractSink(String id) {
         super(id, ComponentType.SINK);
+        this.latencyMetric = LiebreContext.operatorMetrics().newHistogramMetric(id, METRIC_LATENCY);
     }
 
     @Override
@@ -67,9 +73,27 @@ public abstract class AbstractSink<IN> extends AbstractComponent<IN, Void> imple
             increaseTuplesRead();
             increaseTuplesWritten();
             processTuple(tuple);
+            if (latencyMetric.isEnabled() && tuple instanceof RichTuple) {
+                // In nanoseconds, like the other time metrics, with the millisecond
+                // resolution of the stimulus
+                latencyMetric.record(
+                        TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - ((RichTuple) tuple).getStimulus()));
+            }
         }
     }
 
+    @Override
+    public void enable() {
+        latencyMetric.enable();
+        super.enable();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+        latencyMetric.disable();
+    }
+
     @Override
     protected void flushAction() {
         LiebreContext.sinkFinished(this);
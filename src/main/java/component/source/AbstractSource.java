@@ -73,7 +73,7 @@ public abstract class AbstractSource<OUT> extends component.AbstractComponent<Vo
     @Override
     protected void flushAction() {
         if (LiebreContext.isFlushingEnabled()) {
-            getOutput().flush();
+            getOutput().flush(getIndex());
         }
     }
 
@@ -23,6 +23,7 @@
 
 package query;
 
+import common.scalegate.ReadMode;
 import common.tuple.RichTuple;
 import common.util.Util;
 import common.util.backoff.Backoff;
@@ -33,18 +34,35 @@ import component.StreamProducer;
 import component.operator.Operator;
 import component.operator.in1.Operator1In;
 import component.operator.in1.aggregate.*;
+import component.operator.in1.aggregate.topk.TopKAggregate;
+import component.operator.in1.aggregate.topk.TopKResultFunction;
+import component.operator.in1.aggregate.topk.TopKWeightFunction;
+import component.operator.in1.async.AsyncFunction;
+import component.operator.in1.async.AsyncOperator;
+import component.operator.in1.cep.Pattern;
+import component.operator.in1.cep.PatternOperator;
+import component.operator.in1.cep.PatternSelectFunction;
+import component.operator.in1.dedup.DeduplicationIdFunction;
+import component.operator.in1.dedup.DeduplicationOperator;
 import component.operator.in1.filter.FilterFunction;
 import component.operator.in1.filter.FilterOperator;
 import component.operator.in1.map.FlatMapFunction;
 import component.operator.in1.map.FlatMapOperator;
 import component.operator.in1.map.MapFunction;
 import component.operator.in1.map.MapOperator;
+import component.operator.in1.reorder.ReorderOperator;
 import component.operator.in2.Operator2In;
 import component.operator.in2.join.JoinFunction;
 import component.operator.in2.join.TimeBasedJoin;
+import component.operator.in2.table.StreamTableJoin;
+import component.operator.in2.table.TableKeyFunction;
+import component.operator.in2.table.TableLoader;
 import component.operator.router.BaseRouterOperator;
+import component.operator.router.ContentBasedRouterOperator;
 import component.operator.router.HashBasedRouterOperator;
 import component.operator.router.RouterOperator;
+import component.operator.router.ShuffleRouterOperator;
+import component.operator.union.OrderedUnionOperator;
 import component.operator.union.UnionOperator;
 import component.sink.*;
 import component.source.*;
@@ -60,6 +78,7 @@ import stream.StreamFactory;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 /**
  * The main execution unit. Acts as a factory for the stream {@link Component}s
@@ -77,6 +96,7 @@ public final class Query {
     public static final String OPERATOR = "operator";
     public static final String SOURCE = "source";
     public static final String SINK = "sink";
+    private static final ToIntFunction<RichTuple> KEY_PARTITIONER = t -> t.getKey().hashCode();
     private final Map<String, Operator<?, ?>> operators = new HashMap<>();
     private final Map<String, Source<?>> sources = new HashMap<>();
     private final Map<String, Sink<?>> sinks = new HashMap<>();
@@ -126,6 +146,12 @@ public final class Query {
             KeyExtractor keyExtractor) {
         if (o instanceof TimeAggregate) {
             ((TimeAggregate<IN, OUT>) o).registerKeyExtractor(keyExtractor);
+        } else if (o instanceof KeyedTupleAggregate) {
+            ((KeyedTupleAggregate<IN, OUT>) o).registerKeyExtractor(keyExtractor);
+        } else if (o instanceof TopKAggregate) {
+            ((TopKAggregate<IN, OUT>) o).registerKeyExtractor(keyExtractor);
+        } else if (o instanceof PatternOperator) {
+            ((PatternOperator<IN, OUT>) o).registerKeyExtractor(keyExtractor);
         }
     }
 
@@ -202,6 +228,47 @@ public final class Query {
         return result;
     }
 
+    private synchronized <IN extends RichTuple, OUT> Operator<IN, OUT> addKeyedTupleAggregateOperator(
+            String identifier, int instance, int parallelism, long windowSize, long windowSlide,
+            KeyedTupleWindow<IN, OUT> window) {
+        return addOperator(
+                new KeyedTupleAggregate<IN, OUT>(identifier, instance, parallelism, windowSize, windowSlide, window));
+    }
+
+    public synchronized <IN extends RichTuple, OUT> Operator<IN, OUT> addKeyedTupleAggregateOperator(
+            String identifier, long windowSize, long windowSlide, KeyedTupleWindow<IN, OUT> window) {
+        return addKeyedTupleAggregateOperator(identifier, 0, 1, windowSize, windowSlide, window);
+    }
+
+    public synchronized <IN extends RichTuple, OUT> List<Operator<IN, OUT>> addKeyedTupleAggregateOperator(
+            String identifier, int parallelism, long windowSize, long windowSlide, KeyedTupleWindow<IN, OUT> window) {
+        assert (parallelism >= 1);
+        List<Operator<IN, OUT>> result = new LinkedList<>();
+        if (parallelism == 1) {
+            result.add(addKeyedTupleAggregateOperator(identifier, 0, 1, windowSize, windowSlide, window));
+        } else {
+            for (int i = 0; i < parallelism; i++) {
+                result.add(addKeyedTupleAggregateOperator(identifier + "_" + i, i, parallelism, windowSize,
+                        windowSlide, window));
+            }
+        }
+        return result;
+    }
+
+    public synchronized <IN extends RichTuple, OUT> Operator<IN, OUT> addTopKOperator(String identifier,
+            long windowSize, long windowSlide, int k, TopKWeightFunction<IN> weightFunction,
+            TopKResultFunction<OUT> resultFunction) {
+        return addOperator(
+                new TopKAggregate<IN, OUT>(identifier, windowSize, windowSlide, k, weightFunction, resultFunction));
+    }
+
+    public synchronized <IN extends RichTuple, OUT> Operator<IN, OUT> addApproximateTopKOperator(String identifier,
+            long windowSize, long windowSlide, int k, int capacity, TopKWeightFunction<IN> weightFunction,
+            TopKResultFunction<OUT> resultFunction) {
+        return addOperator(new TopKAggregate<IN, OUT>(identifier, windowSize, windowSlide, k, capacity,
+                weightFunction, resultFunction));
+    }
+
     public synchronized <IN, OUT> Operator<IN, OUT> addMapOperator(String identifier,
             MapFunction<IN, OUT> mapFunction) {
         return addOperator(new MapOperator<IN, OUT>(identifier, mapFunction));
@@ -244,6 +311,16 @@ public final class Query {
         return result;
     }
 
+    public synchronized <IN, OUT> Operator<IN, OUT> addAsyncOperator(String identifier,
+            AsyncFunction<IN, OUT> function, int capacity, long timeoutMillis, AsyncOperator.OutputMode mode) {
+        return addOperator(new AsyncOperator<IN, OUT>(identifier, function, capacity, timeoutMillis, mode));
+    }
+
+    public synchronized <T extends RichTuple, OUT> Operator<T, OUT> addPatternOperator(String identifier,
+            Pattern<T> pattern, PatternSelectFunction<T, OUT> selectFunction) {
+        return addOperator(new PatternOperator<T, OUT>(identifier, pattern, selectFunction));
+    }
+
     public synchronized <T> Operator<T, T> addFilterOperator(String identifier, FilterFunction<T> filterF) {
         return addOperator(new FilterOperator<T>(identifier, filterF));
     }
@@ -262,6 +339,24 @@ public final class Query {
         return result;
     }
 
+    public synchronized <T extends RichTuple> Operator<T, T> addReorderOperator(String identifier,
+            ReorderOperator.SlackType slackType, long slack) {
+        return addOperator(new ReorderOperator<T>(identifier, slackType, slack));
+    }
+
+    public synchronized <T extends RichTuple> Operator<T, T> addDeduplicationOperator(String identifier,
+            DeduplicationOperator.TimeMode timeMode, long ttl, DeduplicationIdFunction<T> idFunction) {
+        return addOperator(new DeduplicationOperator<T>(identifier, timeMode, ttl,
+                DeduplicationOperator.DEFAULT_BUCKETS, idFunction));
+    }
+
+    public synchronized <T extends RichTuple> Operator<T, T> addApproximateDeduplicationOperator(String identifier,
+            DeduplicationOperator.TimeMode timeMode, long ttl, DeduplicationIdFunction<T> idFunction,
+            long expectedIdsPerBucket, double falsePositiveRate) {
+        return addOperator(new DeduplicationOperator<T>(identifier, timeMode, ttl,
+                DeduplicationOperator.DEFAULT_BUCKETS, idFunction, expectedIdsPerBucket, falsePositiveRate));
+    }
+
     public synchronized <T> RouterOperator<T> addRouterOperator(String identifier) {
         RouterOperator<T> router = new BaseRouterOperator<T>(identifier);
         saveComponent(operators, router, OPERATOR);
@@ -285,6 +380,16 @@ public final class Query {
         return result;
     }
 
+    /**
+     * Add a {@link ContentBasedRouterOperator}. Attributes and subscriptions must
+     * be registered on the returned router before the query is activated.
+     */
+    public synchronized <T> ContentBasedRouterOperator<T> addContentBasedRouterOperator(String identifier) {
+        ContentBasedRouterOperator<T> router = new ContentBasedRouterOperator<>(identifier);
+        saveComponent(operators, router, OPERATOR);
+        return router;
+    }
+
     public synchronized <T> UnionOperator<T> addUnionOperator(UnionOperator<T> union) {
         saveComponent(operators, union, OPERATOR);
         return union;
@@ -310,6 +415,12 @@ public final class Query {
         return result;
     }
 
+    public synchronized <T extends RichTuple> OrderedUnionOperator<T> addOrderedUnionOperator(String identifier) {
+        OrderedUnionOperator<T> union = new OrderedUnionOperator<>(identifier);
+        saveComponent(operators, union, OPERATOR);
+        return union;
+    }
+
     public synchronized <T> Source<T> addSource(Source<T> source) {
         saveComponent(sources, source, SOURCE);
         return source;
@@ -354,6 +465,19 @@ public final class Query {
         return addOperator2In(new TimeBasedJoin<>(identifier, windowSize, joinFunction));
     }
 
+    public synchronized <IN, IN2 extends RichTuple, OUT> Operator2In<IN, IN2, OUT> addStreamTableJoinOperator(
+            String identifier, TableKeyFunction<IN> probeKeyFunction, TableKeyFunction<IN2> tableKeyFunction,
+            JoinFunction<IN, IN2, OUT> joinFunction) {
+        return addOperator2In(new StreamTableJoin<>(identifier, probeKeyFunction, tableKeyFunction, joinFunction));
+    }
+
+    public synchronized <IN, IN2 extends RichTuple, OUT> Operator2In<IN, IN2, OUT> addStreamTableJoinOperator(
+            String identifier, TableKeyFunction<IN> probeKeyFunction, TableKeyFunction<IN2> tableKeyFunction,
+            JoinFunction<IN, IN2, OUT> joinFunction, int maxTableSize, TableLoader<IN2> loader) {
+        return addOperator2In(new StreamTableJoin<>(identifier, probeKeyFunction, tableKeyFunction, joinFunction,
+                maxTableSize, loader));
+    }
+
     public synchronized <T> Query connect(StreamProducer<T> producer, StreamConsumer<T> consumer) {
         return connect(producer, consumer, defaultBackoff);
     }
@@ -368,6 +492,31 @@ public final class Query {
         return this;
     }
 
+    /**
+     * Connect a producer to several consumers with a single stream that delivers
+     * every tuple to all of them, instead of a router with one stream per
+     * consumer.
+     */
+    public synchronized <T> Query connectBroadcast(StreamProducer<T> producer,
+            List<? extends StreamConsumer<T>> consumers) {
+        return connectBroadcast(producer, consumers, defaultBackoff);
+    }
+
+    public synchronized <T> Query connectBroadcast(StreamProducer<T> producer,
+            List<? extends StreamConsumer<T>> consumers, Backoff backoff) {
+        for (StreamConsumer<T> consumer : consumers) {
+            Validate.isTrue(consumer instanceof Operator2In == false,
+                    "Error when connecting '%s': Broadcast streams cannot be connected to Operator2In!",
+                    consumer.getId());
+        }
+        Stream<T> stream = streamFactory.newBroadcastStream(producer, consumers, DEFAULT_STREAM_CAPACITY, backoff);
+        producer.addOutput(stream);
+        for (StreamConsumer<T> consumer : consumers) {
+            consumer.addInput(stream);
+        }
+        return this;
+    }
+
     public synchronized <T extends RichTuple> Query connectKeyBy(StreamProducer<T> producer,
             List<? extends StreamConsumer<T>> consumers) {
 
@@ -389,6 +538,35 @@ public final class Query {
         return this;
     }
 
+    /**
+     * Connect a producer to parallel instances of a stateless operator through a
+     * {@link ShuffleRouterOperator}, which distributes the tuples round-robin in
+     * batches without ordering them.
+     */
+    public synchronized <T> Query connectShuffle(StreamProducer<T> producer,
+            List<? extends StreamConsumer<T>> consumers) {
+        return connectShuffle(producer, consumers, ShuffleRouterOperator.DEFAULT_BATCH_SIZE);
+    }
+
+    public synchronized <T> Query connectShuffle(StreamProducer<T> producer,
+            List<? extends StreamConsumer<T>> consumers, int batchSize) {
+
+        // Generate id based on producer and consumers
+        String id = producer.getId();
+        for (StreamConsumer<T> cons : consumers) {
+            id += "_" + cons.getId();
+        }
+        RouterOperator<T> router = new ShuffleRouterOperator<T>(id, batchSize);
+        saveComponent(operators, router, OPERATOR);
+
+        connect(producer, router);
+        for (StreamConsumer<T> cons : consumers) {
+            connect(router, cons);
+        }
+
+        return this;
+    }
+
     public synchronized <T extends Comparable<? super T>> Query connect(List<? extends StreamProducer<T>> producers,
             StreamConsumer<T> consumer) {
 
@@ -401,7 +579,51 @@ public final class Query {
     public synchronized <T extends Comparable<? super T>> Query connect(List<? extends StreamProducer<T>> producers,
             List<? extends StreamConsumer<T>> consumers) {
         MWMRStream<T> stream = streamFactory.newMWMRStream(producers, consumers, DEFAULT_SGSTREAM_MAX_LEVELS,
-                defaultBackoff);
+                DEFAULT_STREAM_CAPACITY, defaultBackoff);
+        return connect(stream, producers, consumers);
+    }
+
+    /**
+     * Like {@link #connect(List, List)}, but the consumers can split the tuples
+     * among them instead of each reading all of them. In
+     * {@link ReadMode#PARTITIONED} mode, the tuples are partitioned by key like in
+     * {@link #connectKeyBy(StreamProducer, List)}.
+     *
+     * @param mode How the tuples are distributed among the consumers.
+     */
+    public synchronized <T extends RichTuple & Comparable<? super T>> Query connect(
+            List<? extends StreamProducer<T>> producers, List<? extends StreamConsumer<T>> consumers, ReadMode mode) {
+        MWMRStream<T> stream = streamFactory.newMWMRStream(producers, consumers, DEFAULT_SGSTREAM_MAX_LEVELS,
+                DEFAULT_STREAM_CAPACITY, defaultBackoff);
+        stream.setReadMode(mode, KEY_PARTITIONER);
+        return connect(stream, producers, consumers);
+    }
+
+    /**
+     * Like {@link #connect(List, List)}, for tuples that are ordered by their
+     * timestamp. The stream compares timestamps directly and recycles its
+     * internal nodes, so it is cheaper than a stream that uses
+     * {@link Comparable}.
+     */
+    public synchronized <T extends RichTuple> Query connectTimestamped(List<? extends StreamProducer<T>> producers,
+            List<? extends StreamConsumer<T>> consumers) {
+        return connectTimestamped(producers, consumers, ReadMode.BROADCAST);
+    }
+
+    /**
+     * Like {@link #connect(List, List, ReadMode)}, for tuples that are ordered by
+     * their timestamp.
+     */
+    public synchronized <T extends RichTuple> Query connectTimestamped(List<? extends StreamProducer<T>> producers,
+            List<? extends StreamConsumer<T>> consumers, ReadMode mode) {
+        MWMRStream<T> stream = streamFactory.newTimestampMWMRStream(producers, consumers, DEFAULT_SGSTREAM_MAX_LEVELS,
+                DEFAULT_STREAM_CAPACITY, defaultBackoff);
+        stream.setReadMode(mode, KEY_PARTITIONER);
+        return connect(stream, producers, consumers);
+    }
+
+    private <T> Query connect(MWMRStream<T> stream, List<? extends StreamProducer<T>> producers,
+            List<? extends StreamConsumer<T>> consumers) {
         for (StreamProducer<T> producer : producers) {
             stream.registerProducer(producer);
             producer.addOutput(stream);
@@ -1,5 +1,7 @@
 package stream;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import query.LiebreContext;
 import common.metrics.Metric;
 
@@ -7,22 +9,35 @@ public abstract class AbstractStream<T> implements Stream<T> {
 
     public static final String METRIC_IN = "IN";
     public static final String METRIC_OUT = "OUT";
+    public static final String METRIC_QUEUE_DELAY = "QUEUE_DELAY";
+    // One in SAMPLE_MASK + 1 added tuples is timed, while no other sample is pending
+    private static final int SAMPLE_MASK = 63;
+    private static final long SAMPLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
     protected final String id;
     protected final int index;
     protected boolean enabled;
 
     private final Metric inMetric;
     private final Metric outMetric;
+    private final Metric queueDelayMetric;
+    private final AtomicReference<DelaySample> delaySample = new AtomicReference<>();
+    // Only decides which tuples are sampled. Producers of multi-writer streams
+    // race on it, which can only lose increments and slightly change the rate.
+    private int addedTuples;
 
     public AbstractStream(String id, int index) {
         this.id = id;
         this.index = index;
         inMetric = LiebreContext.streamMetrics().newStreamMetric(id, METRIC_IN);
         outMetric = LiebreContext.streamMetrics().newStreamMetric(id, METRIC_OUT);
+        queueDelayMetric = LiebreContext.streamMetrics().newHistogramMetric(id, METRIC_QUEUE_DELAY);
     }
 
     @Override
     public final void addTuple(T tuple, int producerIndex) {
+        if (queueDelayMetric.isEnabled() && (++addedTuples & SAMPLE_MASK) == 0) {
+            sampleDelay(tuple);
+        }
         doAddTuple(tuple, producerIndex);
         inMetric.record(1);
     }
@@ -32,10 +47,23 @@ public abstract class AbstractStream<T> implements Stream<T> {
         T tuple = doGetNextTuple(consumerIndex);
         if (tuple != null) {
             outMetric.record(1);
+            DelaySample sample = delaySample.get();
+            if (sample != null && sample.tuple == tuple && delaySample.compareAndSet(sample, null)) {
+                queueDelayMetric.record(System.nanoTime() - sample.addedNanos);
+            }
         }
         return tuple;
     }
 
+    private void sampleDelay(T tuple) {
+        final DelaySample current = delaySample.get();
+        final long now = System.nanoTime();
+        // Replace samples that never left the stream, e.g., late tuples dropped by it
+        if (current == null || now - current.addedNanos > SAMPLE_TIMEOUT_NANOS) {
+            delaySample.compareAndSet(current, new DelaySample(tuple, now));
+        }
+    }
+
     protected abstract T doGetNextTuple(int consumerIndex);
 
     protected abstract void doAddTuple(T tuple, int producerIndex);
@@ -44,6 +72,7 @@ public abstract class AbstractStream<T> implements Stream<T> {
     public void enable() {
         inMetric.enable();
         outMetric.enable();
+        queueDelayMetric.enable();
         this.enabled = true;
     }
 
@@ -57,6 +86,8 @@ public abstract class AbstractStream<T> implements Stream<T> {
         this.enabled = false;
         inMetric.disable();
         outMetric.disable();
+        queueDelayMetric.disable();
+        delaySample.set(null);
     }
 
     @Override
@@ -68,4 +99,15 @@ public abstract class AbstractStream<T> implements Stream<T> {
     public int getIndex() {
         return index;
     }
+
+    private static final class DelaySample {
+
+        private final Object tuple;
+        private final long addedNanos;
+
+        private DelaySample(Object tuple, long addedNanos) {
+            this.tuple = tuple;
+            this.addedNanos = addedNanos;
+        }
+    }
 }
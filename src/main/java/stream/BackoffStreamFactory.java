@@ -1,5 +1,7 @@
 package stream;
 
+import common.scalegate.TimestampScaleGate;
+import common.tuple.RichTuple;
 import component.StreamConsumer;
 import component.StreamProducer;
 import common.util.backoff.Backoff;
@@ -17,10 +19,25 @@ public class BackoffStreamFactory implements StreamFactory {
 
     @Override
     public <T extends Comparable<? super T>> MWMRStream<T> newMWMRStream(List<? extends StreamProducer<T>> sources,
-            List<? extends StreamConsumer<T>> destinations, int maxLevels, Backoff backoff) {
+            List<? extends StreamConsumer<T>> destinations, int maxLevels, int capacity, Backoff backoff) {
         // TODO Ugly to get index 0 by default?
         return new SGStream<T>(getStreamId(sources.get(0), destinations.get(0)), indexes.getAndIncrement(), maxLevels,
-                sources.size(), destinations.size(), sources, destinations, backoff);
+                sources.size(), destinations.size(), sources, destinations, capacity, backoff);
     }
 
+    @Override
+    public <T extends RichTuple> MWMRStream<T> newTimestampMWMRStream(List<? extends StreamProducer<T>> sources,
+            List<? extends StreamConsumer<T>> destinations, int maxLevels, int capacity, Backoff backoff) {
+        TimestampScaleGate<T> sg = new TimestampScaleGate<>(maxLevels, sources.size(), destinations.size(),
+                SGStream.DEFAULT_IDLE_TIMEOUT_MILLIS);
+        return new SGStream<T>(getStreamId(sources.get(0), destinations.get(0)), indexes.getAndIncrement(), sg,
+                sources.size(), destinations.size(), sources, destinations, capacity, backoff);
+    }
+
+    @Override
+    public <T> Stream<T> newBroadcastStream(StreamProducer<T> from, List<? extends StreamConsumer<T>> to,
+            int capacity, Backoff backoff) {
+        return new BroadcastStream<>(getStreamId(from, to.get(0)), indexes.getAndIncrement(), from, to, capacity,
+                backoff);
+    }
 }
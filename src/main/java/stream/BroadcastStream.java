@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package stream;
+
+import common.tuple.RichTuple;
+import common.util.backoff.Backoff;
+import component.StreamConsumer;
+import component.StreamProducer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Single-writer, multi-reader {@link Stream} that delivers every tuple to all
+ * its consumers. The tuples are written once to a ring buffer and each consumer
+ * reads them with its own cursor, so the cost of a write does not depend on the
+ * number of consumers, unlike a router that copies each tuple to one stream per
+ * consumer.
+ * <p>
+ * The ring has a fixed capacity. When the slowest consumer is a full ring
+ * behind, the writer backs off until that consumer advances. Since the stream
+ * is shared, {@link #size()} is the backlog of the slowest consumer and
+ * {@link #peek(int)} and {@link #getNextTuple(int)} are relative to the given
+ * consumer. The stream is flushed when the producer flushed it and all the
+ * consumers read all the tuples.
+ *
+ * @param <T> The type of tuples transferred by this {@link Stream}.
+ * @see StreamFactory#newBroadcastStream(StreamProducer, List, int, Backoff)
+ */
+public class BroadcastStream<T> extends AbstractStream<T> {
+
+    private static final double EMA_ALPHA = 0.5;
+    // Cursors are spaced by 128 bytes to avoid false sharing between threads
+    private static final int PADDING = 16;
+    private static final int TAIL = 0;
+
+    private final Object[] ring;
+    private final int mask;
+    private final int capacity;
+    private final StreamProducer<T> source;
+    private final List<? extends StreamConsumer<T>> destinations;
+    private final Map<Integer, Integer> readerMapping = new HashMap<>();
+    // Position TAIL holds the next write position, position (r + 1) * PADDING
+    // holds the next read position of reader r
+    private final AtomicLongArray positions;
+    private final Backoff writeBackoff;
+    private final Backoff[] readBackoffs;
+    // Writer-local copy of the slowest read position, refreshed when the ring
+    // seems full
+    private long slowestRead;
+    private volatile boolean isFlushed = false;
+    private volatile double averageArrivalTime = -1;
+
+    /**
+     * Construct.
+     *
+     * @param id           The unique ID of the stream.
+     * @param index        The unique index of the stream.
+     * @param source       The producer.
+     * @param destinations The consumers, all of which receive every tuple.
+     * @param capacity     The maximum number of tuples that a consumer can lag
+     *                     behind the producer.
+     * @param backoff      The backoff strategy.
+     */
+    BroadcastStream(String id, int index, StreamProducer<T> source, List<? extends StreamConsumer<T>> destinations,
+            int capacity, Backoff backoff) {
+        super(id, index);
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+        Validate.notEmpty(destinations, "destinations");
+        final int ringSize = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.ring = new Object[ringSize];
+        this.mask = ringSize - 1;
+        this.capacity = capacity;
+        this.source = source;
+        this.destinations = destinations;
+        this.positions = new AtomicLongArray((destinations.size() + 1) * PADDING);
+        this.writeBackoff = backoff.newInstance();
+        this.readBackoffs = new Backoff[destinations.size()];
+        for (int i = 0; i < destinations.size(); i++) {
+            Validate.isTrue(readerMapping.put(destinations.get(i).getIndex(), i) == null,
+                    "Consumer %s appears twice", destinations.get(i).getId());
+            readBackoffs[i] = backoff.newInstance();
+        }
+    }
+
+    @Override
+    public void doAddTuple(T tuple, int producerIndex) {
+        while (!offer(tuple, producerIndex)) {
+            if (!isEnabled()) {
+                // The consumers will never catch up
+                return;
+            }
+            writeBackoff.backoff();
+            Thread.yield();
+        }
+        writeBackoff.relax();
+    }
+
+    /**
+     * Write the tuple if no consumer is a full ring behind.
+     *
+     * @return {@code true} if the tuple was written, {@code false} if the stream
+     *         is full.
+     */
+    @Override
+    public final boolean offer(T tuple, int producerIndex) {
+        final long tail = positions.get(TAIL);
+        if (tail - slowestRead >= capacity) {
+            slowestRead = slowestReadPosition();
+            if (tail - slowestRead >= capacity) {
+                return false;
+            }
+        }
+        ring[(int) tail & mask] = tuple;
+        // Publishes the tuple to the readers
+        positions.lazySet(TAIL, tail + 1);
+        // FIXME: This should only run when scheduling is enabled!!
+        if (tuple instanceof RichTuple) {
+            long arrivalTime = ((RichTuple) tuple).getStimulus();
+            averageArrivalTime = averageArrivalTime < 0 ? arrivalTime
+                    : ((EMA_ALPHA * arrivalTime) + ((1 - EMA_ALPHA) * averageArrivalTime));
+        }
+        return true;
+    }
+
+    @Override
+    public T doGetNextTuple(int consumerIndex) {
+        final int reader = readerMapping.get(consumerIndex);
+        final int position = (reader + 1) * PADDING;
+        final long read = positions.get(position);
+        if (read < positions.get(TAIL)) {
+            T tuple = elementAt(read);
+            // Releases the slot to the writer
+            positions.lazySet(position, read + 1);
+            readBackoffs[reader].relax();
+            return tuple;
+        }
+        readBackoffs[reader].backoff();
+        return null;
+    }
+
+    @Override
+    public final T peek(int consumerIndex) {
+        final long read = positions.get((readerMapping.get(consumerIndex) + 1) * PADDING);
+        return read < positions.get(TAIL) ? elementAt(read) : null;
+    }
+
+    @Override
+    public final int remainingCapacity() {
+        return Math.max(capacity - size(), 0);
+    }
+
+    /**
+     * @return The number of tuples that the slowest consumer has not read yet.
+     */
+    @Override
+    public final int size() {
+        return (int) (positions.get(TAIL) - slowestReadPosition());
+    }
+
+    private long slowestReadPosition() {
+        long slowest = Long.MAX_VALUE;
+        for (int reader = 1; reader <= readBackoffs.length; reader++) {
+            slowest = Math.min(slowest, positions.get(reader * PADDING));
+        }
+        return slowest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(long position) {
+        return (T) ring[(int) position & mask];
+    }
+
+    @Override
+    public List<? extends StreamProducer<T>> producers() {
+        return Arrays.asList(source);
+    }
+
+    @Override
+    public List<? extends StreamConsumer<T>> consumers() {
+        return destinations;
+    }
+
+    @Override
+    public void resetArrivalTime() {
+        averageArrivalTime = -1;
+    }
+
+    @Override
+    public double averageArrivalTime() {
+        return averageArrivalTime;
+    }
+
+    @Override
+    public void flush() {
+        isFlushed = true;
+    }
+
+    @Override
+    public boolean isFlushed() {
+        return isFlushed && size() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this).append("id", id).append("index", index).append("capacity", capacity)
+                .append("size", size()).append("component/source", source).append("destinations", destinations)
+                .append("enabled", enabled).toString();
+    }
+}
@@ -1,11 +1,56 @@
 package stream;
 
+import common.scalegate.ReadMode;
 import component.StreamConsumer;
 import component.StreamProducer;
+import java.util.function.ToIntFunction;
 
 public interface MWMRStream<T> extends Stream<T> {
 
     void registerProducer(StreamProducer<T> producer);
 
     void registerConsumer(StreamConsumer<T> consumer);
+
+    /**
+     * Remove a producer that was registered, possibly while the stream is used.
+     */
+    void unregisterProducer(StreamProducer<T> producer);
+
+    /**
+     * Stop giving new tuples to a consumer before unregistering it. The consumer
+     * keeps reading the tuples already given to it until
+     * {@link #isDrained(StreamConsumer)}.
+     */
+    void drainConsumer(StreamConsumer<T> consumer);
+
+    /**
+     * Whether a consumer that is drained has read all the tuples given to it.
+     */
+    boolean isDrained(StreamConsumer<T> consumer);
+
+    /**
+     * Remove a consumer that was registered, possibly while the stream is used.
+     * In {@link ReadMode#PARTITIONED} mode, the consumer must be drained first.
+     */
+    void unregisterConsumer(StreamConsumer<T> consumer);
+
+    /**
+     * Declare the progress of a producer without adding a tuple.
+     *
+     * @param watermark     A tuple, not delivered to the consumers, that no future
+     *                      tuple of the producer will precede.
+     * @param producerIndex The index of the producer.
+     */
+    void addHeartbeat(T watermark, int producerIndex);
+
+    /**
+     * Choose how the tuples are distributed among the consumers. Must be called
+     * before the stream is used.
+     *
+     * @param mode        The read mode.
+     * @param partitioner The partition of each tuple in
+     *                    {@link ReadMode#PARTITIONED} mode, taken modulo the
+     *                    number of consumers; ignored otherwise.
+     */
+    void setReadMode(ReadMode mode, ToIntFunction<? super T> partitioner);
 }
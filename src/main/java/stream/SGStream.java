@@ -1,60 +1,192 @@
 package stream;
 
+import common.scalegate.ReadMode;
 import common.scalegate.ScaleGate;
 import common.scalegate.ScaleGateAArrImpl;
-import common.scalegate.TuplesFromAll;
 import common.util.backoff.Backoff;
 import component.StreamConsumer;
 import component.StreamProducer;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.Validate;
 
 /*
  * Assumption: all writers and reader threads are distinct
  * (i.e., this class is not safe when used in combination
  * with custom thread scheduling)
  */
-public class SGStream<T extends Comparable<? super T>> extends AbstractStream<T> implements MWMRStream<T> {
+public class SGStream<T> extends AbstractStream<T> implements MWMRStream<T> {
 
     public static final String SGSTREAM_UNSUPPORTED = "Cannot invoke this function on SGStream";
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10000;
 
     private ScaleGate<T> sg;
-    private List<? extends StreamProducer<T>> producers;
-    private List<? extends StreamConsumer<T>> consumers;
+    private final List<StreamProducer<T>> producers;
+    private final List<StreamConsumer<T>> consumers;
+    // Producers and consumers registered before the stream is used get the
+    // initial writer and reader ids, later ones join the ScaleGate
+    private final int initialWriters;
+    private final int initialReaders;
     private final AtomicInteger producerIndexer = new AtomicInteger(0);
     private final AtomicInteger consumerIndexer = new AtomicInteger(0);
-    private Map<Integer, Integer> producerMapping = new HashMap<>();
-    private Map<Integer, Integer> consumerMapping = new HashMap<>();
+    // Writer and reader id of each producer and consumer index, -1 if it is not
+    // registered. Replaced when producers or consumers are (un)registered.
+    private volatile int[] writerIds = new int[0];
+    private volatile int[] readerIds = new int[0];
+    private volatile int[] activeWriters = new int[0];
+    // Writers of the producers that flushed, guarded by the lock of the stream
+    private final Set<Integer> flushedWriters = new HashSet<>();
     private volatile boolean isFlushed = false;
 
-    private final Backoff readBackoff;
-
-    private TuplesFromAll barrier;
+    private final int capacity;
+    private final Backoff[] readBackoffs;
+    private final Backoff[] writeBackoffs;
 
     public SGStream(String id, int index, int maxLevels, int writers, int readers,
             List<? extends StreamProducer<T>> producers, List<? extends StreamConsumer<T>> consumers, Backoff backoff) {
+        this(id, index, maxLevels, writers, readers, producers, consumers, Integer.MAX_VALUE, backoff);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param capacity The number of tuples of each writer that can be buffered
+     *                 before the writer starts backing off.
+     */
+    public SGStream(String id, int index, int maxLevels, int writers, int readers,
+            List<? extends StreamProducer<T>> producers, List<? extends StreamConsumer<T>> consumers, int capacity,
+            Backoff backoff) {
+        this(id, index, maxLevels, writers, readers, producers, consumers, capacity, DEFAULT_IDLE_TIMEOUT_MILLIS,
+                backoff);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param capacity          The number of tuples of each writer that can be
+     *                          buffered before the writer starts backing off.
+     * @param idleTimeoutMillis The time after which a writer that neither adds
+     *                          tuples nor heartbeats stops holding back the
+     *                          readers, or {@link Long#MAX_VALUE} to always wait
+     *                          for all the writers.
+     */
+    public SGStream(String id, int index, int maxLevels, int writers, int readers,
+            List<? extends StreamProducer<T>> producers, List<? extends StreamConsumer<T>> consumers, int capacity,
+            long idleTimeoutMillis, Backoff backoff) {
+        this(id, index, new ScaleGateAArrImpl(maxLevels, writers, readers, idleTimeoutMillis), writers, readers,
+                producers, consumers, capacity, backoff);
+    }
+
+    /**
+     * Construct a stream on the given {@link ScaleGate}, which decides the order
+     * of the tuples and must be sized for the given writers and readers.
+     * Producers and consumers can be registered and unregistered while the
+     * stream is used, up to {@link ScaleGate#maxWriters()} and
+     * {@link ScaleGate#maxReaders()} at the same time.
+     *
+     * @param capacity The number of tuples of each writer that can be buffered
+     *                 before the writer starts backing off.
+     */
+    public SGStream(String id, int index, ScaleGate<T> sg, int writers, int readers,
+            List<? extends StreamProducer<T>> producers, List<? extends StreamConsumer<T>> consumers, int capacity,
+            Backoff backoff) {
         super(id, index);
-        this.sg = new ScaleGateAArrImpl(maxLevels, writers, readers);
-        this.producers = producers;
-        this.consumers = consumers;
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+        this.sg = sg;
+        this.producers = new CopyOnWriteArrayList<>(producers);
+        this.consumers = new CopyOnWriteArrayList<>(consumers);
+        this.initialWriters = writers;
+        this.initialReaders = readers;
+
+        this.readBackoffs = new Backoff[sg.maxReaders()];
+        for (int i = 0; i < readBackoffs.length; i++) {
+            readBackoffs[i] = backoff.newInstance();
+        }
+        this.writeBackoffs = new Backoff[sg.maxWriters()];
+        for (int i = 0; i < writeBackoffs.length; i++) {
+            writeBackoffs[i] = backoff.newInstance();
+        }
+    }
+
+    @Override
+    public synchronized void registerProducer(StreamProducer<T> producer) {
+        final int writer = producerIndexer.get() < initialWriters ? producerIndexer.getAndIncrement()
+                : sg.addWriter();
+        writerIds = withId(writerIds, producer.getIndex(), writer);
+        activeWriters = ArrayUtils.add(activeWriters, writer);
+        if (!producers.contains(producer)) {
+            producers.add(producer);
+        }
+    }
 
-        barrier = new TuplesFromAll();
-        barrier.setSize(writers);
+    @Override
+    public synchronized void registerConsumer(StreamConsumer<T> consumer) {
+        final int reader = consumerIndexer.get() < initialReaders ? consumerIndexer.getAndIncrement()
+                : sg.addReader();
+        readerIds = withId(readerIds, consumer.getIndex(), reader);
+        if (!consumers.contains(consumer)) {
+            consumers.add(consumer);
+        }
+    }
 
-        this.readBackoff = backoff.newInstance();
+    /**
+     * Remove a producer while the stream is used. Its tuples already added are
+     * still delivered and the consumers stop waiting for it.
+     */
+    @Override
+    public synchronized void unregisterProducer(StreamProducer<T> producer) {
+        final int writer = writerIds[producer.getIndex()];
+        Validate.isTrue(writer >= 0, "Producer %s is not registered", producer);
+        sg.removeWriter(writer);
+        writerIds = withId(writerIds, producer.getIndex(), -1);
+        activeWriters = ArrayUtils.removeElement(activeWriters, writer);
+        producers.remove(producer);
+        // The producer might have been the last one that did not flush
+        flushedWriters.remove(writer);
+        flushIfAllFlushed();
     }
 
     @Override
-    public void registerProducer(StreamProducer<T> producer) {
-        producerMapping.put(producer.getIndex(), producerIndexer.getAndIncrement());
+    public synchronized void drainConsumer(StreamConsumer<T> consumer) {
+        sg.drainReader(readerId(consumer));
     }
 
     @Override
-    public void registerConsumer(StreamConsumer<T> consumer) {
-        consumerMapping.put(consumer.getIndex(), consumerIndexer.getAndIncrement());
+    public boolean isDrained(StreamConsumer<T> consumer) {
+        return sg.isDrained(readerId(consumer));
+    }
+
+    /**
+     * Remove a consumer while the stream is used. The consumer must not read from
+     * the stream afterwards.
+     */
+    @Override
+    public synchronized void unregisterConsumer(StreamConsumer<T> consumer) {
+        final int reader = readerId(consumer);
+        sg.removeReader(reader);
+        readerIds = withId(readerIds, consumer.getIndex(), -1);
+        consumers.remove(consumer);
+    }
+
+    private int readerId(StreamConsumer<T> consumer) {
+        final int reader = readerIds[consumer.getIndex()];
+        Validate.isTrue(reader >= 0, "Consumer %s is not registered", consumer);
+        return reader;
+    }
+
+    private static int[] withId(int[] ids, int index, int id) {
+        int[] copy = Arrays.copyOf(ids, Math.max(ids.length, index + 1));
+        Arrays.fill(copy, ids.length, copy.length, -1);
+        copy[index] = id;
+        return copy;
     }
 
     @Override
@@ -69,24 +201,58 @@ public class SGStream<T extends Comparable<? super T>> extends AbstractStream<T>
 
     @Override
     public void doAddTuple(T tuple, int producerIndex) {
-        barrier.receivedTupleFrom(producerMapping.get(producerIndex));
-        sg.addTuple(tuple, producerMapping.get(producerIndex));
+        final int writer = writerIds[producerIndex];
+        sg.addTuple(tuple, writer);
+        // Tuples of a fast writer cannot be read before the slow writers catch
+        // up, so the capacity is enforced per writer
+        if (sg.size(writer) < capacity) {
+            writeBackoffs[writer].relax();
+        } else {
+            writeBackoffs[writer].backoff();
+        }
     }
 
     @Override
     public T doGetNextTuple(int consumerIndex) {
-        while (!barrier.receivedTupleFromEachInput()) {
-        }
-
-        T tuple = sg.getNextReadyTuple(consumerMapping.get(consumerIndex));
+        // No tuple is ready until every writer added a tuple or a heartbeat, or was
+        // found idle, so readers back off instead of waiting for that
+        final int reader = readerIds[consumerIndex];
+        T tuple = sg.getNextReadyTuple(reader);
         if (tuple != null) {
-            readBackoff.relax();
+            readBackoffs[reader].relax();
             return tuple;
         }
-        readBackoff.backoff();
+        readBackoffs[reader].backoff();
         return null;
     }
 
+    /**
+     * Declare that the producer will not add tuples older than the watermark, so
+     * that the consumers can read the tuples of the other producers up to it
+     * while this producer has no tuples.
+     *
+     * @param watermark     A tuple that is not delivered, compared with the
+     *                      tuples of the stream.
+     * @param producerIndex The index of the producer.
+     */
+    @Override
+    public void addHeartbeat(T watermark, int producerIndex) {
+        sg.addHeartbeat(watermark, writerIds[producerIndex]);
+    }
+
+    @Override
+    public void setReadMode(ReadMode mode, ToIntFunction<? super T> partitioner) {
+        sg.setReadMode(mode, partitioner);
+    }
+
+    /**
+     * @return The number of tuples dropped because their producer had been found
+     *         idle and they were older than tuples already read.
+     */
+    public long getLateTuples() {
+        return sg.getLateTuples();
+    }
+
     @Override
     public List<? extends StreamProducer<T>> producers() {
         return producers;
@@ -109,12 +275,18 @@ public class SGStream<T extends Comparable<? super T>> extends AbstractStream<T>
 
     @Override
     public int remainingCapacity() {
-        return Integer.MAX_VALUE;
+        // The capacity of the least loaded writer, so that no writer is prevented
+        // from running because of the others
+        int remaining = 0;
+        for (int writer : activeWriters) {
+            remaining = Math.max(remaining, capacity - sg.size(writer));
+        }
+        return remaining;
     }
 
     @Override
     public int size() {
-        return 0;
+        return sg.size();
     }
 
     @Override
@@ -127,12 +299,38 @@ public class SGStream<T extends Comparable<? super T>> extends AbstractStream<T>
         throw new UnsupportedOperationException(SGSTREAM_UNSUPPORTED);
     }
 
+    /** Flush the stream immediately, even if some producers did not flush it. */
     @Override
-    public void flush() {
+    public synchronized void flush() {
         this.sg.letItFlush();
         isFlushed = true;
     }
 
+    @Override
+    public synchronized void flush(int producerIndex) {
+        final int writer = writerIds[producerIndex];
+        Validate.isTrue(writer >= 0, "Producer %d is not registered", producerIndex);
+        flushedWriters.add(writer);
+        flushIfAllFlushed();
+    }
+
+    /**
+     * Flush once every active writer flushed. Writers that are still active would
+     * add tuples after the flush, and a writer that is backing off could lose its
+     * last tuples when a faster writer finishes first.
+     */
+    private void flushIfAllFlushed() {
+        if (flushedWriters.isEmpty()) {
+            return;
+        }
+        for (int writer : activeWriters) {
+            if (!flushedWriters.contains(writer)) {
+                return;
+            }
+        }
+        flush();
+    }
+
     @Override
     public boolean isFlushed() {
         return isFlushed && this.sg.hasBeenEmptied();
@@ -59,6 +59,16 @@ public interface Stream<T> extends Active, Named {
 
     void flush();
 
+    /**
+     * Flush the stream on behalf of one of its producers, which will not add
+     * tuples anymore. Streams with several producers can wait for all of them.
+     *
+     * @param producerIndex The index of the producer.
+     */
+    default void flush(int producerIndex) {
+        flush();
+    }
+
     boolean isFlushed();
 
 }
@@ -23,6 +23,7 @@
 
 package stream;
 
+import common.tuple.RichTuple;
 import component.StreamConsumer;
 import component.StreamProducer;
 import common.util.backoff.Backoff;
@@ -38,8 +39,36 @@ public interface StreamFactory {
         return newStream(from, to, capacity, InactiveBackoff.INSTANCE);
     }
 
+    /**
+     * Create a multi-writer multi-reader stream that delivers the tuples of all
+     * the producers to every consumer, in timestamp order.
+     *
+     * @param capacity The number of tuples of each producer that can be buffered
+     *                 before the producer starts backing off.
+     */
     <T extends Comparable<? super T>> MWMRStream<T> newMWMRStream(List<? extends StreamProducer<T>> sources,
-            List<? extends StreamConsumer<T>> destinations, int maxLevels, Backoff backoff);
+            List<? extends StreamConsumer<T>> destinations, int maxLevels, int capacity, Backoff backoff);
+
+    default <T extends Comparable<? super T>> MWMRStream<T> newMWMRStream(List<? extends StreamProducer<T>> sources,
+            List<? extends StreamConsumer<T>> destinations, int maxLevels, Backoff backoff) {
+        return newMWMRStream(sources, destinations, maxLevels, Integer.MAX_VALUE, backoff);
+    }
+
+    /**
+     * Create a multi-writer multi-reader stream like
+     * {@link #newMWMRStream(List, List, int, int, Backoff)} that orders the
+     * tuples by {@link RichTuple#getTimestamp()}, with a ScaleGate specialized for
+     * that.
+     */
+    <T extends RichTuple> MWMRStream<T> newTimestampMWMRStream(List<? extends StreamProducer<T>> sources,
+            List<? extends StreamConsumer<T>> destinations, int maxLevels, int capacity, Backoff backoff);
+
+    /**
+     * Create a stream that delivers every tuple of one producer to all the given
+     * consumers.
+     */
+    <T> Stream<T> newBroadcastStream(StreamProducer<T> from, List<? extends StreamConsumer<T>> to, int capacity,
+            Backoff backoff);
 
     default String getStreamId(StreamProducer<?> from, StreamConsumer<?> to) {
         return String.format("%s_%s", from.getId(), to.getId());
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package tests;
+
+import common.util.Util;
+import component.operator.Operator;
+import component.operator.in1.async.AsyncOperator;
+import component.operator.in1.async.AsyncOperator.OutputMode;
+import component.sink.Sink;
+import component.source.Source;
+import component.source.SourceFunction;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import query.Query;
+
+/**
+ * Runs an {@link AsyncOperator} against an in-process stub service that
+ * answers requests after a random delay, and checks the number and the order
+ * of the results in both output modes. The stub never answers some requests,
+ * which must be dropped by the timeout.
+ */
+public class AsyncOperatorTest {
+
+    private static final int TUPLES = 2000;
+    private static final int CAPACITY = 64;
+    private static final long TIMEOUT_MILLIS = 100;
+
+    public static void main(String[] args) {
+        ScheduledExecutorService service = Executors.newScheduledThreadPool(4);
+        try {
+            for (OutputMode mode : OutputMode.values()) {
+                List<Long> results = run(service, mode);
+                long lost = TUPLES / 100;
+                System.out.println(mode + ": " + results.size() + " results, expected " + (TUPLES - lost));
+                assert (results.size() == TUPLES - lost);
+                boolean ordered = isOrdered(results);
+                System.out.println(mode + ": results in input order: " + ordered);
+                assert (mode == OutputMode.UNORDERED || ordered);
+            }
+        } finally {
+            service.shutdownNow();
+        }
+    }
+
+    private static List<Long> run(ScheduledExecutorService service, OutputMode mode) {
+        Query q = new Query();
+        Source<Long> source = q.addBaseSource("S_" + mode, new SourceFunction<Long>() {
+            private long next = 0;
+
+            @Override
+            public Long get() {
+                return next < TUPLES ? next++ : null;
+            }
+
+            @Override
+            public boolean isInputFinished() {
+                return next >= TUPLES;
+            }
+        });
+
+        // Stub service: answers after 0-20 ms, never answers every 100th request
+        final Random random = new Random(0);
+        Operator<Long, Long> async = q.addAsyncOperator("A_" + mode, request -> {
+            CompletableFuture<Long> response = new CompletableFuture<>();
+            if (request % 100 != 99) {
+                service.schedule(() -> response.complete(request), random.nextInt(20), TimeUnit.MILLISECONDS);
+            }
+            return response;
+        }, CAPACITY, TIMEOUT_MILLIS, mode);
+
+        List<Long> results = new CopyOnWriteArrayList<>();
+        Sink<Long> sink = q.addBaseSink("O_" + mode, results::add);
+
+        q.connect(source, async).connect(async, sink);
+        q.activate();
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (results.size() < TUPLES - TUPLES / 100 && System.currentTimeMillis() < deadline) {
+            Util.sleep(100);
+        }
+        // Give the operator time to (wrongly) emit more results
+        Util.sleep(500);
+        q.deActivate();
+        return results;
+    }
+
+    private static boolean isOrdered(List<Long> results) {
+        for (int i = 1; i < results.size(); i++) {
+            if (results.get(i) < results.get(i - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2017-2019
+ *   Vincenzo Gulisano
+ *   Dimitris Palyvos-Giannas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ *   Vincenzo Gulisano info@vincenzogulisano.com
+ *   Dimitris Palyvos-Giannas palyvos@chalmers.se
+ */
+
+package testsSG;
+
+import common.scalegate.ReadMode;
+import common.scalegate.ScaleGate;
+import common.scalegate.ScaleGateAArrImpl;
+import common.scalegate.TimestampScaleGate;
+import common.tuple.BaseRichTuple;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs both ScaleGate implementations in every read mode with concurrent
+ * writers and readers, first with fixed writers and readers and then removing
+ * and adding one of each mid-run, and checks that:
+ * <ul>
+ * <li>every reader receives its tuples in timestamp order,</li>
+ * <li>no tuple is late, including the ones of the removed reader,</li>
+ * <li>in SHARED and PARTITIONED mode every tuple is returned exactly once,</li>
+ * <li>in PARTITIONED mode, while the readers do not change, each key goes to
+ * a single reader,</li>
+ * <li>in BROADCAST mode the readers present the whole run receive every
+ * tuple.</li>
+ * </ul>
+ * Timestamps come from a shared clock, so they are unique and identify the
+ * tuples. Run with {@code -ea}.
+ */
+public class ScaleGateTest {
+
+    private static final int MAX_LEVELS = 3;
+    private static final int WRITERS = 3;
+    private static final int READERS = 3;
+    private static final int TUPLES = 100000;
+    private static final int KEYS = 16;
+    private static final int HEARTBEAT_INTERVAL = 1000;
+
+    private static final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public static void main(String[] args) throws InterruptedException {
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+            e.printStackTrace();
+            failure.compareAndSet(null, e);
+        });
+        for (boolean elastic : new boolean[] { false, true }) {
+            for (boolean timestamp : new boolean[] { false, true }) {
+                for (ReadMode mode : ReadMode.values()) {
+                    ScaleGate<BaseRichTuple> sg = timestamp
+                            ? new TimestampScaleGate<>(MAX_LEVELS, WRITERS, READERS, WRITERS + 1, READERS + 1,
+                                    Long.MAX_VALUE)
+                            : new ScaleGateAArrImpl<>(MAX_LEVELS, WRITERS, READERS, WRITERS + 1, READERS + 1,
+                                    Long.MAX_VALUE);
+                    String name = sg.getClass().getSimpleName() + " " + mode + (elastic ? " elastic" : "");
+                    run(name, sg, mode, elastic);
+                }
+            }
+        }
+        assert failure.get() == null : failure.get();
+    }
+
+    private static void run(String name, ScaleGate<BaseRichTuple> sg, ReadMode mode, boolean elastic)
+            throws InterruptedException {
+        sg.setReadMode(mode, tuple -> tuple.getKey().hashCode());
+        final AtomicLong clock = new AtomicLong();
+        final Flag flushed = new Flag();
+        final List<Writer> writers = new ArrayList<>();
+        final List<Reader> readers = new ArrayList<>();
+        long total;
+
+        if (!elastic) {
+            for (int i = 0; i < WRITERS; i++) {
+                writers.add(new Writer(sg, i, TUPLES, clock, false));
+            }
+            for (int i = 0; i < READERS; i++) {
+                readers.add(new Reader(sg, i, flushed));
+            }
+            writers.forEach(Thread::start);
+            readers.forEach(Thread::start);
+            total = WRITERS * TUPLES;
+        } else {
+            // Writer 0 adds half the tuples and removes itself, and a new writer
+            // adds the other half; reader 0 is drained and replaced by a new
+            // reader, and removed once it returned all its tuples
+            writers.add(new Writer(sg, 0, TUPLES / 2, clock, true));
+            for (int i = 1; i < WRITERS; i++) {
+                writers.add(new Writer(sg, i, TUPLES, clock, false));
+            }
+            for (int i = 0; i < READERS; i++) {
+                readers.add(new Reader(sg, i, flushed));
+            }
+            writers.forEach(Thread::start);
+            readers.forEach(Thread::start);
+            writers.get(0).join();
+            Writer added = new Writer(sg, sg.addWriter(), TUPLES / 2, clock, false);
+            writers.add(added);
+            added.start();
+            while (clock.get() < TUPLES && failure.get() == null) {
+                Thread.yield();
+            }
+            sg.drainReader(readers.get(0).id);
+            Reader addedReader = new Reader(sg, sg.addReader(), flushed);
+            readers.add(addedReader);
+            addedReader.start();
+            total = WRITERS * TUPLES;
+        }
+
+        for (Writer writer : writers) {
+            writer.join();
+        }
+        // The last tuples of each writer, which the drained reader might own,
+        // cannot be passed until the flush
+        sg.letItFlush();
+        flushed.set = true;
+        for (Reader reader : readers) {
+            reader.join();
+        }
+        if (elastic) {
+            assert sg.isDrained(readers.get(0).id) : name;
+            sg.removeReader(readers.get(0).id);
+        }
+        check(name, sg, mode, elastic, readers, total);
+    }
+
+    private static void check(String name, ScaleGate<BaseRichTuple> sg, ReadMode mode, boolean elastic,
+            List<Reader> readers, long total) {
+        final long late = sg.getLateTuples();
+        long delivered = 0;
+        long duplicates = 0;
+        boolean ordered = true;
+        boolean keysSplit = false;
+        final int[] received = new int[(int) total + 1];
+        final int[] keyReader = new int[KEYS];
+        Arrays.fill(keyReader, -1);
+        for (int r = 0; r < readers.size(); r++) {
+            long previous = Long.MIN_VALUE;
+            for (BaseRichTuple tuple : readers.get(r).received) {
+                ordered &= tuple.getTimestamp() >= previous;
+                previous = tuple.getTimestamp();
+                if (received[(int) tuple.getTimestamp()]++ > 0) {
+                    duplicates++;
+                }
+                final int key = (int) (tuple.getTimestamp() % KEYS);
+                keysSplit |= keyReader[key] >= 0 && keyReader[key] != r;
+                keyReader[key] = r;
+                delivered++;
+            }
+        }
+        System.out.format("%s: %d tuples, %d delivered, %d duplicates, %d late, ordered: %b%n", name, total,
+                delivered, duplicates, late, ordered);
+        assert ordered : name;
+        assert late == 0 : name;
+        if (mode == ReadMode.BROADCAST) {
+            // The first reader is removed in the elastic run, the last one added
+            for (int r = elastic ? 1 : 0; r < READERS; r++) {
+                assert readers.get(r).received.size() == total : name + " reader " + r;
+            }
+        } else {
+            assert duplicates == 0 : name;
+            assert delivered == total : name;
+            assert mode != ReadMode.PARTITIONED || elastic || !keysSplit : name;
+        }
+    }
+
+    private static final class Flag {
+        volatile boolean set;
+    }
+
+    private static final class Writer extends Thread {
+        private final ScaleGate<BaseRichTuple> sg;
+        private final int id;
+        private final int tuples;
+        private final AtomicLong clock;
+        private final boolean remove;
+
+        Writer(ScaleGate<BaseRichTuple> sg, int id, int tuples, AtomicLong clock, boolean remove) {
+            this.sg = sg;
+            this.id = id;
+            this.tuples = tuples;
+            this.clock = clock;
+            this.remove = remove;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 1; i <= tuples; i++) {
+                final long timestamp = clock.incrementAndGet();
+                sg.addTuple(new BaseRichTuple(timestamp, "k" + timestamp % KEYS), id);
+                if (i % HEARTBEAT_INTERVAL == 0) {
+                    sg.addHeartbeat(new BaseRichTuple(clock.get(), ""), id);
+                }
+            }
+            if (remove) {
+                sg.removeWriter(id);
+            }
+        }
+    }
+
+    private static final class Reader extends Thread {
+        private final ScaleGate<BaseRichTuple> sg;
+        private final int id;
+        private final Flag flushed;
+        private final List<BaseRichTuple> received = new ArrayList<>();
+
+        Reader(ScaleGate<BaseRichTuple> sg, int id, Flag flushed) {
+            this.sg = sg;
+            this.id = id;
+            this.flushed = flushed;
+        }
+
+        @Override
+        public void run() {
+            // A drained reader stops once it returned all its tuples
+            while (!sg.isDrained(id)) {
+                // After the flush, nothing holds the tuples back
+                final boolean last = flushed.set;
+                BaseRichTuple tuple = sg.getNextReadyTuple(id);
+                if (tuple != null) {
+                    received.add(tuple);
+                } else if (last) {
+                    return;
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+}